@@ -0,0 +1,154 @@
+package com.hex.srpc.benchmark;
+
+import com.hex.common.constant.CompressType;
+import com.hex.common.constant.RpcConstant;
+import com.hex.common.constant.SerializeType;
+import com.hex.srpc.core.connection.Connection;
+import com.hex.srpc.core.handler.flush.BatchFlushHandler;
+import com.hex.srpc.core.protocol.Handshake;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: hs
+ * <p>
+ * flush合并及批量帧测试，在EmbeddedChannel上模拟一轮事件循环内逐条writeAndFlush多个已编码的v2帧
+ * direct为不加BatchFlushHandler，consolidate只合并flush，batch同时打包批量帧；
+ * 辅助计数flushes/writes为到达传输层的flush及写出次数，与操作吞吐之比即每轮的flush及写出次数(对应系统调用次数)
+ * 运行: java -cp srpc-benchmark/target/benchmarks.jar com.hex.srpc.benchmark.BatchFlushBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchFlushBenchmark {
+
+    private static final int FRAME_HEADER_LENGTH = 2 + 1 + 1 + 1 + 4 + 8 + 1 + 4;
+
+    @Param({"direct", "consolidate", "batch"})
+    private String mode;
+
+    @Param({"1", "16", "128"})
+    private int messages;
+
+    @Param({"128"})
+    private int bodySize;
+
+    private EmbeddedChannel channel;
+    private ByteBuf frame;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class TransportCounters {
+        public long flushes;
+        public long writes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            flushes = 0;
+            writes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        frame = Unpooled.directBuffer(FRAME_HEADER_LENGTH + bodySize);
+        frame.writeShort(RpcConstant.MAGIC_NUMBER);
+        frame.writeByte(RpcConstant.VERSION);
+        frame.writeByte(SerializeType.PROTOSTUFF.getCode() << 4);
+        frame.writeBoolean(false);
+        frame.writeInt(FRAME_HEADER_LENGTH - 9 + bodySize);
+        frame.writeLong(1L);
+        frame.writeByte(0);
+        frame.writeInt(200);
+        frame.writeZero(bodySize);
+    }
+
+    @Setup(Level.Iteration)
+    public void setupChannel(TransportCounters counters) {
+        channel = new EmbeddedChannel();
+        channel.attr(Connection.HANDSHAKE)
+                .set(Handshake.local(RpcConstant.VERSION, SerializeType.PROTOSTUFF, CompressType.NONE));
+        channel.pipeline().addLast(new TransportCounter(counters));
+        if (!"direct".equals(mode)) {
+            // 与服务端默认配置一致
+            channel.pipeline().addLast(new BatchFlushHandler(64, 64 * 1024, "batch".equals(mode)));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeChannel() {
+        channel.finishAndReleaseAll();
+    }
+
+    @TearDown(Level.Trial)
+    public void release() {
+        frame.release();
+    }
+
+    @Benchmark
+    public void writeAndFlush(TransportCounters counters) {
+        for (int i = 0; i < messages; i++) {
+            channel.writeAndFlush(frame.retainedDuplicate());
+        }
+        // 执行合并后的flush任务，相当于事件循环本轮任务结束
+        channel.runPendingTasks();
+    }
+
+    /**
+     * 位于pipeline最前面，代替传输层统计写出及flush次数
+     */
+    private static class TransportCounter extends ChannelOutboundHandlerAdapter {
+        private final TransportCounters counters;
+
+        TransportCounter(TransportCounters counters) {
+            this.counters = counters;
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            counters.writes++;
+            ReferenceCountUtil.release(msg);
+            promise.trySuccess();
+        }
+
+        @Override
+        public void flush(ChannelHandlerContext ctx) {
+            counters.flushes++;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(BatchFlushBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,109 @@
+package com.hex.srpc.benchmark;
+
+import com.hex.common.thread.VirtualThreadExecutor;
+import com.hex.common.utils.ThreadUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: hs
+ * <p>
+ * 阻塞路由的业务执行器测试，对比服务端默认的200线程固定线程池与{@link VirtualThreadExecutor}
+ * 每次操作同时提交requests个阻塞blockMillis毫秒的任务(模拟调用数据库等阻塞操作的路由)并等待全部完成，
+ * 结果为处理完一批请求的耗时；虚拟线程需在JDK21及以上运行，否则virtualThread测试在初始化时失败
+ * 运行: java -cp srpc-benchmark/target/benchmarks.jar com.hex.srpc.benchmark.BusinessExecutorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BusinessExecutorBenchmark {
+
+    /**
+     * 与SRpcServerConfig中businessThreads的默认值一致
+     */
+    private static final int BUSINESS_THREADS = 200;
+
+    @Param({"200", "1000", "5000"})
+    private int requests;
+
+    @Param({"10"})
+    private long blockMillis;
+
+    private ExecutorService fixedPool;
+    private ExecutorService virtualThreadExecutor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // 队列足够容纳一批请求，避免AbortPolicy拒绝
+        fixedPool = ThreadUtil.getFixThreadPoolExecutor(BUSINESS_THREADS, requests,
+                new ThreadPoolExecutor.AbortPolicy(), "benchmark-business");
+        virtualThreadExecutor = VirtualThreadExecutor.create("benchmark-business", requests, false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixedPool.shutdownNow();
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public void fixedThreadPool() throws InterruptedException {
+        runBatch(fixedPool);
+    }
+
+    @Benchmark
+    public void virtualThread() throws InterruptedException {
+        if (virtualThreadExecutor == null) {
+            throw new IllegalStateException("Virtual threads are not supported by JDK " + System.getProperty("java.version"));
+        }
+        runBatch(virtualThreadExecutor);
+    }
+
+    private void runBatch(ExecutorService executor) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(requests);
+        for (int i = 0; i < requests; i++) {
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(blockMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(BusinessExecutorBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
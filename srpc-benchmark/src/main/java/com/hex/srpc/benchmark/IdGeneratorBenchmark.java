@@ -0,0 +1,59 @@
+package com.hex.srpc.benchmark;
+
+import com.hex.common.id.SequenceBlockId;
+import com.hex.common.id.SnowflakeId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: hs
+ * <p>
+ * id生成竞争测试，对比加锁的{@link SnowflakeId}与无锁分段的{@link SequenceBlockId}在1~64个线程下的吞吐
+ * 运行: java -cp srpc-benchmark/target/benchmarks.jar com.hex.srpc.benchmark.IdGeneratorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    private final SnowflakeId snowflakeId = new SnowflakeId(1, 1);
+    private final SequenceBlockId sequenceBlockId = new SequenceBlockId();
+
+    @Benchmark
+    public long snowflake() {
+        return snowflakeId.nextId();
+    }
+
+    @Benchmark
+    public long sequenceBlock() {
+        return sequenceBlockId.nextId();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder()
+                    .include(IdGeneratorBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
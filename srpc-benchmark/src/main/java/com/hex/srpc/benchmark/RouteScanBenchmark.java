@@ -0,0 +1,180 @@
+package com.hex.srpc.benchmark;
+
+import com.hex.common.annotation.SRpcRoute;
+import com.hex.srpc.core.reflect.RouteScanner;
+import com.hex.srpc.core.reflect.RouterFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.URLDecoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * @author: hs
+ * <p>
+ * 路由扫描启动耗时测试，在临时目录生成包含10000个类(每100个类中1个标注@SRpcRoute)的包，
+ * 对比原先逐个加载所有类的目录扫描与{@link RouteScanner}并行扫描并按常量池过滤的耗时；
+ * 每次调用使用新的类加载器，类均未加载过，与应用启动时一致
+ * 运行: java -cp srpc-benchmark/target/benchmarks.jar com.hex.srpc.benchmark.RouteScanBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(3)
+public class RouteScanBenchmark {
+
+    private static final String BASE_PACKAGE = "com.hex.srpc.benchmark.synthetic";
+    private static final String ROUTE_DESCRIPTOR = Type.getDescriptor(SRpcRoute.class);
+    private static final int SUB_PACKAGES = 100;
+    private static final int ROUTE_INTERVAL = 100;
+
+    @Param({"10000"})
+    private int classCount;
+
+    private Path root;
+    private URLClassLoader classLoader;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        // 原先的扫描按路径中的"classes."截取类名，目录名保持一致
+        root = Files.createTempDirectory("srpc-scan").resolve("classes");
+        for (int i = 0; i < classCount; i++) {
+            String packageName = BASE_PACKAGE + ".p" + (i % SUB_PACKAGES);
+            String className = packageName + ".Synthetic" + i;
+            Path file = root.resolve(className.replace('.', File.separatorChar) + ".class");
+            Files.createDirectories(file.getParent());
+            Files.write(file, generateClass(className, i % ROUTE_INTERVAL == 0));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void newClassLoader() throws IOException {
+        classLoader = new URLClassLoader(new URL[]{root.toUri().toURL()}, RouteScanBenchmark.class.getClassLoader());
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeClassLoader() throws IOException {
+        classLoader.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        try (Stream<Path> paths = Files.walk(root.getParent())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    /**
+     * 并行扫描，只加载常量池中引用了@SRpcRoute的类
+     */
+    @Benchmark
+    public int parallelScan() {
+        new RouteScanner(null)
+                .setBasePackages(Collections.singleton(BASE_PACKAGE))
+                .setClassLoader(classLoader)
+                .san();
+        return RouterFactory.getMappingSize();
+    }
+
+    /**
+     * 原先的扫描方式：单线程遍历目录，加载每个类后检查注解
+     */
+    @Benchmark
+    public int legacyScan() throws Exception {
+        URL resource = classLoader.getResource(BASE_PACKAGE.replace(".", "/"));
+        File[] files = new File(URLDecoder.decode(resource.getFile(), "UTF-8")).listFiles();
+        legacyLoadAndRegister(files);
+        return RouterFactory.getMappingSize();
+    }
+
+    private void legacyLoadAndRegister(File[] files) throws ClassNotFoundException {
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                legacyLoadAndRegister(file.listFiles());
+                continue;
+            }
+            if (!file.getName().endsWith(".class")) {
+                continue;
+            }
+            String classAbsolutePath = file.getAbsolutePath().replace(File.separator, ".");
+            String className = classAbsolutePath.substring(classAbsolutePath.indexOf("classes.") + "classes.".length(),
+                    classAbsolutePath.lastIndexOf(".class"));
+            Class<?> loadClass = classLoader.loadClass(className);
+            if (loadClass.isAnnotationPresent(SRpcRoute.class)) {
+                RouterFactory.register(loadClass);
+            }
+        }
+    }
+
+    /**
+     * 生成带无参构造器及一个字符串方法的类，路由类额外标注@SRpcRoute
+     */
+    private static byte[] generateClass(String className, boolean route) {
+        String internalName = className.replace('.', '/');
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, internalName, null, "java/lang/Object", null);
+        if (route) {
+            cw.visitAnnotation(ROUTE_DESCRIPTOR, true).visitEnd();
+        }
+
+        MethodVisitor init = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        if (!route) {
+            // 路由类的方法需要@Mapping，这里只为普通类生成方法以接近真实的常量池大小
+            MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "value", "()Ljava/lang/String;", null, null);
+            mv.visitCode();
+            mv.visitLdcInsn(className);
+            mv.visitInsn(Opcodes.ARETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RouteScanBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
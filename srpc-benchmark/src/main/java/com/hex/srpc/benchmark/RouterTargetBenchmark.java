@@ -0,0 +1,102 @@
+package com.hex.srpc.benchmark;
+
+import com.hex.srpc.core.protocol.RpcRequest;
+import com.hex.srpc.core.reflect.RouterTarget;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: hs
+ * <p>
+ * 路由方法调用测试，对比反射调用与{@link RouterTarget}(MethodHandle)在0、1、5个参数路由上的耗时
+ * 运行: java -cp srpc-benchmark/target/benchmarks.jar com.hex.srpc.benchmark.RouterTargetBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouterTargetBenchmark {
+
+    @Param({"0", "1", "5"})
+    private int arity;
+
+    private Object router;
+    private Method method;
+    private RouterTarget target;
+    private RpcRequest request;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        router = new BenchmarkRouter();
+        switch (arity) {
+            case 0:
+                method = BenchmarkRouter.class.getMethod("route0");
+                request = new RpcRequest().setArgs(new Object[0]);
+                break;
+            case 1:
+                method = BenchmarkRouter.class.getMethod("route1", String.class);
+                request = new RpcRequest().setArgs(new Object[]{"a"});
+                break;
+            case 5:
+                method = BenchmarkRouter.class.getMethod("route5", String.class, Integer.class, long.class,
+                        String.class, Boolean.class);
+                request = new RpcRequest().setArgs(new Object[]{"a", 1, 2L, "b", Boolean.TRUE});
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported arity " + arity);
+        }
+        method.setAccessible(true);
+        target = new RouterTarget(router, method);
+    }
+
+    @Benchmark
+    public Object reflection() throws InvocationTargetException, IllegalAccessException {
+        return method.invoke(router, request.getArgs());
+    }
+
+    @Benchmark
+    public Object routerTarget() {
+        return target.invoke(request);
+    }
+
+    public static class BenchmarkRouter {
+
+        public String route0() {
+            return "r";
+        }
+
+        public String route1(String a) {
+            return a;
+        }
+
+        public String route5(String a, Integer b, long c, String d, Boolean e) {
+            return e ? a : d;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RouterTargetBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
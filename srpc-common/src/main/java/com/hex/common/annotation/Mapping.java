@@ -17,4 +17,40 @@ public @interface Mapping {
      * 路由路径
      */
     String value() default "";
+
+    /**
+     * 请求超时时间(毫秒)，仅在客户端接口上生效，0为使用@SRpcClient或客户端配置
+     */
+    long timeout() default 0;
+
+    /**
+     * 请求超时重试次数，仅在客户端接口上生效，小于0为使用@SRpcClient的配置
+     */
+    int retryTimes() default -1;
+
+    /**
+     * 重试基础退避时间(毫秒)，仅在客户端接口上生效，0为使用@SRpcClient或客户端配置
+     */
+    long retryBackoff() default 0;
+
+    /**
+     * 对冲延迟(毫秒)，仅在客户端接口上生效且只应用于幂等方法，超过该时间未收到响应时向其他节点发送相同请求；
+     * 0为不对冲，-1为使用该mapping最近响应时间的p95
+     */
+    long hedgeDelay() default 0;
+
+    /**
+     * 调用结果缓存时间(毫秒)，仅在客户端接口上生效且只应用于读多写少的幂等方法，0为不缓存
+     */
+    long cacheTtl() default 0;
+
+    /**
+     * 调用结果缓存后台刷新时间(毫秒)，超过该时间后访问仍返回缓存结果并在后台重新请求，0为不刷新
+     */
+    long cacheRefresh() default 0;
+
+    /**
+     * 是否合并请求，仅在客户端接口上生效且只应用于幂等方法，参数相同的并发调用共用一次请求
+     */
+    boolean coalesce() default false;
 }
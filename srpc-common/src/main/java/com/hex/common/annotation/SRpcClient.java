@@ -30,4 +30,14 @@ public @interface SRpcClient {
      * 请求超时重试次数
      */
     int retryTimes() default 0;
+
+    /**
+     * 接口内所有方法的请求超时时间(毫秒)，0为使用客户端配置，方法上@Mapping指定的超时时间优先
+     */
+    long timeout() default 0;
+
+    /**
+     * 接口内所有方法的重试基础退避时间(毫秒)，0为使用客户端配置，方法上@Mapping指定的优先
+     */
+    long retryBackoff() default 0;
 }
@@ -32,6 +32,11 @@ public class ResponseStatus {
      */
     public static final Integer RESPONSE_TIMEOUT = 502;
 
+    /**
+     * 请求已超过截止时间，服务端未处理
+     */
+    public static final Integer REQUEST_EXPIRED = 504;
+
     /**
      * 节点暂时不可用
      */
@@ -18,7 +18,15 @@ public interface RpcConstant {
 
     short MAGIC_NUMBER = 0x1025;
 
-    byte VERSION = 0x01;
+    /**
+     * 当前协议版本，v2使用二进制帧头
+     */
+    byte VERSION = 0x02;
+
+    /**
+     * v1协议版本，整个Command序列化为消息体
+     */
+    byte VERSION_V1 = 0x01;
 
     int COMPRESS_TYPE_LENGTH = 1;
 
@@ -1,9 +1,17 @@
 package com.hex.common.exception;
 
+import com.hex.common.net.HostAndPort;
+
 /**
  * @author: hs
  */
 public class ConnectionException extends RuntimeException {
+
+    /**
+     * 已选定连接后发送失败时为该连接的节点，重试时据此排除
+     */
+    private HostAndPort remoteAddress;
+
     public ConnectionException() {
     }
 
@@ -18,4 +26,13 @@ public class ConnectionException extends RuntimeException {
     public ConnectionException(String message, Throwable cause) {
         super(message, cause);
     }
+
+    public ConnectionException(String message, HostAndPort remoteAddress) {
+        super(message);
+        this.remoteAddress = remoteAddress;
+    }
+
+    public HostAndPort getRemoteAddress() {
+        return remoteAddress;
+    }
 }
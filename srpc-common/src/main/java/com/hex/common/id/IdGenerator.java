@@ -3,11 +3,11 @@ package com.hex.common.id;
 /**
  * @author: hs
  * <p>
- * id生成器
+ * id生成器，用于请求seq及连接id，基于{@link SequenceBlockId}无锁生成
  */
 public class IdGenerator {
 
-    private static volatile ISnowFlakeId snowFlakeId;
+    private static final SequenceBlockId SEQUENCE_BLOCK_ID = new SequenceBlockId();
 
     /**
      * 生成id
@@ -15,14 +15,7 @@ public class IdGenerator {
      * @return id
      */
     public static Long getId() {
-        if (snowFlakeId == null) {
-            synchronized (IdGenerator.class) {
-                if (snowFlakeId == null) {
-                    snowFlakeId = new SnowflakeId(1, 1);
-                }
-            }
-        }
-        return snowFlakeId.nextId();
+        return SEQUENCE_BLOCK_ID.nextId();
     }
 
 }
@@ -0,0 +1,86 @@
+package com.hex.common.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author: hs
+ * <p>
+ * 无锁id生成器
+ * 全局序列以启动时间(毫秒) << 22为起点，按线程id分到固定数量的分段(stripe)上，每个分段一次从全局序列中取一段(1024个)依次使用；
+ * 分段数量固定，与线程数无关，大量短生命周期线程或虚拟线程不会使全局序列额外前进，
+ * 全局序列的前进速度不超过生成速度加上各分段未用完的号段；生成过程不读取时钟，时钟回拨不会阻塞或抛出异常。
+ * 同一进程内id唯一，同一分段内递增，不同分段之间不保证有序；
+ * 重启后的起点按时间推后，只要平均每毫秒生成的id不超过约400万个就不会与之前的进程重复
+ */
+public class SequenceBlockId {
+
+    /**
+     * 开始时间截（2021-01-01 00:00:00）
+     */
+    private static final long START_TIME = 1609430400000L;
+
+    /**
+     * 起点中时间戳左移的位数
+     */
+    private static final int TIMESTAMP_SHIFT = 22;
+
+    /**
+     * 号段大小，为2的幂，起点按号段对齐，分段的游标位于号段边界即表示号段已用完
+     */
+    private static final int BLOCK_SIZE = 1024;
+    private static final long BLOCK_MASK = BLOCK_SIZE - 1;
+
+    /**
+     * 相邻分段在数组中的间隔，避免不同分段的游标位于同一缓存行
+     */
+    private static final int STRIPE_PADDING = 16;
+
+    private final AtomicLong sequence;
+    private final AtomicLongArray cursors;
+    private final int stripeMask;
+
+    public SequenceBlockId() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * @param stripes 分段数量，向上取2的幂
+     */
+    public SequenceBlockId(int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("stripes must be greater than 0");
+        }
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.stripeMask = size - 1;
+        this.cursors = new AtomicLongArray((stripeMask + 1) * STRIPE_PADDING);
+        this.sequence = new AtomicLong((System.currentTimeMillis() - START_TIME) << TIMESTAMP_SHIFT);
+    }
+
+    /**
+     * 获得下一个id，线程安全且不加锁
+     *
+     * @return id
+     */
+    public long nextId() {
+        int index = ((int) Thread.currentThread().getId() & stripeMask) * STRIPE_PADDING;
+        for (; ; ) {
+            long cursor = cursors.get(index);
+            if ((cursor & BLOCK_MASK) != 0) {
+                // 当前号段未用完
+                if (cursors.compareAndSet(index, cursor, cursor + 1)) {
+                    return cursor;
+                }
+                continue;
+            }
+            // 号段用完(或尚未分配)，取新的号段，并发时只有一个线程的号段生效，其余号段放弃
+            long block = sequence.getAndAdd(BLOCK_SIZE);
+            if (cursors.compareAndSet(index, cursor, block + 1)) {
+                return block;
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.hex.common.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * @author: hs
+ * <p>
+ * 编译期生成的路由及客户端索引，由srpc-index-processor在编译时写入META-INF/srpc/下，每行一个类名
+ * 索引只对所在的类路径根(目录或jar包)有效：包在某个根下有索引时按索引加载，没有索引的根仍需扫描；
+ * 系统属性srpc.index.ignore=true时忽略索引
+ */
+public class SRpcIndex {
+    private static final Logger logger = LoggerFactory.getLogger(SRpcIndex.class);
+
+    /**
+     * 标注@SRpcRoute的类
+     */
+    public static final String ROUTE_INDEX_LOCATION = "META-INF/srpc/srpc.routes";
+    /**
+     * 标注@SRpcClient的接口
+     */
+    public static final String CLIENT_INDEX_LOCATION = "META-INF/srpc/srpc.clients";
+
+    public static final String IGNORE_INDEX_PROPERTY = "srpc.index.ignore";
+
+    private static final String COMMENT_PREFIX = "#";
+
+    /**
+     * 含有索引文件的类路径根
+     */
+    private final Set<String> roots;
+    private final Set<String> classNames;
+
+    private SRpcIndex(Set<String> roots, Set<String> classNames) {
+        this.roots = roots;
+        this.classNames = classNames;
+    }
+
+    /**
+     * 读取类路径上所有的索引文件，读取失败的索引文件忽略，其所在的类路径根按无索引处理
+     *
+     * @param location    索引位置
+     * @param classLoader 类加载器
+     * @return 索引，类路径上没有索引或忽略索引时不覆盖任何位置
+     */
+    public static SRpcIndex load(String location, ClassLoader classLoader) {
+        Set<String> roots = new HashSet<>();
+        Set<String> classNames = new LinkedHashSet<>();
+        if (Boolean.getBoolean(IGNORE_INDEX_PROPERTY)) {
+            return new SRpcIndex(roots, classNames);
+        }
+        Enumeration<URL> urls;
+        try {
+            urls = classLoader.getResources(location);
+        } catch (IOException e) {
+            logger.warn("Failed to load srpc index {}, fall back to package scanning", location, e);
+            return new SRpcIndex(roots, classNames);
+        }
+        while (urls.hasMoreElements()) {
+            URL url = urls.nextElement();
+            String root = root(url, location);
+            if (root == null) {
+                continue;
+            }
+            Set<String> entries = new LinkedHashSet<>();
+            try (InputStream in = url.openStream();
+                 BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith(COMMENT_PREFIX)) {
+                        entries.add(line);
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to read srpc index {}, fall back to package scanning", url, e);
+                continue;
+            }
+            roots.add(root);
+            classNames.addAll(entries);
+        }
+        return new SRpcIndex(roots, classNames);
+    }
+
+    /**
+     * 是否读取到了索引
+     */
+    public boolean isEmpty() {
+        return roots.isEmpty();
+    }
+
+    /**
+     * 索引中位于basePackages下的类名
+     *
+     * @param basePackages 包名，为空时返回全部
+     */
+    public Set<String> getClassNames(Collection<String> basePackages) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String className : classNames) {
+            if (inPackages(className, basePackages)) {
+                result.add(className);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 类路径上的某个位置所在的根是否有索引
+     *
+     * @param url  位置的URL，如包目录或类文件
+     * @param path 位置相对于类路径根的路径，如com/hex/example
+     */
+    public boolean covers(URL url, String path) {
+        String root = root(url, path);
+        return root != null && roots.contains(root);
+    }
+
+    /**
+     * 包在类路径上的所有位置都有索引，无需扫描
+     */
+    public boolean coversPackage(String basePackage, ClassLoader classLoader) {
+        if (roots.isEmpty()) {
+            return false;
+        }
+        String path = basePackage.replace('.', '/');
+        try {
+            Enumeration<URL> urls = classLoader.getResources(path);
+            while (urls.hasMoreElements()) {
+                if (!covers(urls.nextElement(), path)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 去掉URL末尾的相对路径得到类路径根，如jar:file:/app.jar!/com/hex得到jar:file:/app.jar!/
+     */
+    private static String root(URL url, String path) {
+        String external = stripTrailingSlash(url.toExternalForm());
+        path = stripTrailingSlash(path);
+        if (!external.endsWith(path)) {
+            return null;
+        }
+        return external.substring(0, external.length() - path.length());
+    }
+
+    private static String stripTrailingSlash(String value) {
+        return value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+    }
+
+    private static boolean inPackages(String className, Collection<String> basePackages) {
+        if (basePackages == null || basePackages.isEmpty()) {
+            return true;
+        }
+        for (String basePackage : basePackages) {
+            if (className.startsWith(basePackage)
+                    && (className.length() == basePackage.length() || className.charAt(basePackage.length()) == '.')) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
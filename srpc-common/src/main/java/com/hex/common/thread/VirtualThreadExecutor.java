@@ -0,0 +1,127 @@
+package com.hex.common.thread;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: hs
+ * <p>
+ * 虚拟线程执行器，每个任务一个虚拟线程，需JDK21及以上，通过反射创建以兼容低版本编译
+ * 并发数由信号量限制而非队列长度：超出上限的任务在各自的虚拟线程中等待许可，等待本身几乎没有开销
+ */
+public class VirtualThreadExecutor extends AbstractExecutorService {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadExecutor.class);
+
+    private static final String TRACE_PINNED_PROPERTY = "jdk.tracePinnedThreads";
+
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    private VirtualThreadExecutor(ExecutorService delegate, int maxConcurrency) {
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrency);
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * 当前运行环境是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 创建虚拟线程执行器，不支持时返回null
+     *
+     * @param namePrefix     线程名前缀
+     * @param maxConcurrency 同时执行的最大任务数
+     * @param tracePinned    是否在虚拟线程被pinned时打印堆栈
+     */
+    public static VirtualThreadExecutor create(String namePrefix, int maxConcurrency, boolean tracePinned) {
+        if (!isSupported()) {
+            logger.warn("Virtual threads are not supported by the current JDK {}, fall back to the thread pool",
+                    System.getProperty("java.version"));
+            return null;
+        }
+        if (tracePinned && System.getProperty(TRACE_PINNED_PROPERTY) == null) {
+            // 需在首个虚拟线程创建前设置才生效
+            System.setProperty(TRACE_PINNED_PROPERTY, "short");
+        }
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix + "-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            ExecutorService delegate = (ExecutorService) newExecutor.invoke(null, factory);
+            return new VirtualThreadExecutor(delegate, Math.max(maxConcurrency, 1));
+        } catch (Exception e) {
+            logger.warn("Failed to create virtual thread executor, fall back to the thread pool", e);
+            return null;
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                command.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    /**
+     * 正在执行的任务数
+     */
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -1,20 +1,29 @@
 package com.hex.srpc.core.chain.dealing;
 
+import com.hex.common.constant.ResponseStatus;
 import com.hex.common.constant.RpcConstant;
 import com.hex.common.exception.RpcException;
 import com.hex.srpc.core.chain.Dealing;
 import com.hex.srpc.core.chain.DealingContext;
+import com.hex.srpc.core.connection.IConnection;
 import com.hex.srpc.core.invoke.ResponseFuture;
 import com.hex.srpc.core.invoke.ResponseMapping;
+import com.hex.srpc.core.invoke.RpcContext;
 import com.hex.srpc.core.protocol.Command;
 import com.hex.srpc.core.protocol.RpcRequest;
 import com.hex.srpc.core.protocol.RpcResponse;
 import com.hex.srpc.core.reflect.RouterFactory;
 import com.hex.srpc.core.reflect.RouterTarget;
+import io.netty.util.Timeout;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
 /**
  * @author: hs
  * 分发处理器
@@ -23,10 +32,18 @@ public class DispatchDealing implements Dealing {
     private static final Logger logger = LoggerFactory.getLogger(DispatchDealing.class);
 
     private ResponseMapping responseMapping;
+    private long asyncRouteTimeoutMillis;
 
     public DispatchDealing() {
     }
 
+    /**
+     * @param asyncRouteTimeoutMillis 异步路由等待结果的最长时间(毫秒)，0为不限制
+     */
+    public DispatchDealing(long asyncRouteTimeoutMillis) {
+        this.asyncRouteTimeoutMillis = asyncRouteTimeoutMillis;
+    }
+
     public DispatchDealing(ResponseMapping responseMapping) {
         this.responseMapping = responseMapping;
     }
@@ -54,24 +71,100 @@ public class DispatchDealing implements Dealing {
         if (StringUtils.isBlank(mapping)) {
             throw new RpcException("request mapping is null");
         }
+        // 在业务线程排队期间已过期的请求不再处理
+        if (RpcContext.isExpired(request.getDeadline())) {
+            dropExpired(request, context.getConnection());
+            return;
+        }
         Object result;
         try {
-            // 获取对应router
+            // 获取对应router，路由方法中可通过RpcContext获取剩余时间
             RouterTarget target = RouterFactory.getRouter(mapping);
+            RpcContext.setDeadline(request.getDeadline());
             result = target.invoke(request);
         } catch (Exception e) {
             logger.error("error occurred on the RpcServer", e);
             context.getConnection().send(RpcResponse.serverError(request.getSeq()));
             return;
+        } finally {
+            RpcContext.clear();
+        }
+        if (result instanceof CompletionStage) {
+            // 异步路由，结果完成后再响应，不占用业务线程
+            asyncResponse(request, (CompletionStage<?>) result, context.getConnection());
+            return;
         }
         // 响应
         context.getConnection().send(RpcResponse.success(request.getSeq(), request.getMapping(), result));
     }
 
+    /**
+     * 异步路由的结果完成后响应，等待时间受asyncRouteTimeout及请求截止时间限制，超时后取消路由返回的future
+     */
+    private void asyncResponse(RpcRequest request, CompletionStage<?> stage, IConnection connection) {
+        CompletableFuture<Object> pending = new CompletableFuture<>();
+        stage.whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                pending.completeExceptionally(throwable);
+            } else {
+                pending.complete(value);
+            }
+        });
+        long waitMillis = asyncWaitMillis(request.getDeadline());
+        Timeout timeout = null;
+        if (waitMillis > 0 && !pending.isDone()) {
+            timeout = ResponseMapping.newTimeout(t -> {
+                if (pending.completeExceptionally(new TimeoutException("async route timed out after " + waitMillis + "ms"))
+                        && stage instanceof Future) {
+                    ((Future<?>) stage).cancel(false);
+                }
+            }, waitMillis);
+        }
+        Timeout timeoutTask = timeout;
+        pending.whenComplete((value, throwable) -> {
+            if (timeoutTask != null) {
+                timeoutTask.cancel();
+            }
+            if (throwable == null) {
+                connection.send(RpcResponse.success(request.getSeq(), request.getMapping(), value));
+            } else if (RpcContext.isExpired(request.getDeadline())) {
+                dropExpired(request, connection);
+            } else {
+                logger.error("error occurred on the RpcServer, async route mapping: {}", request.getMapping(), throwable);
+                connection.send(RpcResponse.serverError(request.getSeq()));
+            }
+        });
+    }
+
+    /**
+     * 异步路由最长等待时间，取asyncRouteTimeout与请求剩余时间中较小者，0为不限制
+     */
+    private long asyncWaitMillis(Long deadline) {
+        long waitMillis = asyncRouteTimeoutMillis;
+        if (deadline != null) {
+            long remaining = Math.max(deadline - System.currentTimeMillis(), 1L);
+            waitMillis = waitMillis > 0 ? Math.min(waitMillis, remaining) : remaining;
+        }
+        return waitMillis;
+    }
+
+    /**
+     * 丢弃已过期的请求，只回复状态码
+     */
+    public static void dropExpired(RpcRequest request, IConnection connection) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Request expired, dropped. seq: {}, mapping: {}", request.getSeq(), request.getMapping());
+        }
+        connection.send(RpcResponse.requestExpired(request.getSeq()));
+    }
+
     private void responseProcess(RpcResponse response) {
         ResponseFuture responseFuture = responseMapping.getResponseFuture(response.getSeq());
         if (responseFuture == null) {
-            // 获取不到，可能是服务端处理超时
+            // 获取不到，可能是服务端处理超时；过期响应对应的请求通常已在客户端超时
+            if (ResponseStatus.REQUEST_EXPIRED.equals(response.getStatus())) {
+                return;
+            }
             if (logger.isWarnEnabled()) {
                 logger.warn("Response mismatch request, seq: {}, mapping: {}", response.getSeq(), response.getMapping());
             }
@@ -15,15 +15,30 @@ public class SRpcClientConfig extends TLSConfig {
 
     private Integer callBackTaskThreads = 200; //回调任务处理线程池，0为不设置
     private Integer callBackTaskQueueSize = 500; //回调任务线程池队列大小
+    private boolean virtualThreadEnable = false; //是否每个回调任务使用一个虚拟线程执行，需JDK21及以上，不支持时使用回调任务线程池
+    private Integer virtualThreadMaxConcurrency = 10000; //虚拟线程模式下同时执行的最大回调数，超出的回调在虚拟线程中等待
+    private boolean virtualThreadPinnedTrace = false; //是否在虚拟线程被pinned时打印堆栈，用于诊断
 
     private Integer connectionTimeout = 5; //连接超时时间(秒)
     private Integer requestTimeout = 10; //请求超时时间(秒)
+    private Long requestTimeoutMillis = 0L; //请求超时时间(毫秒)，大于0时优先于requestTimeout，可在@Mapping、@SRpcClient或单次调用中覆盖
+    private Integer hedgeBudgetPercent = 10; //对冲请求占正常请求的最大比例(%)，0为不发送对冲请求，对冲在@Mapping(hedgeDelay)或单次调用参数中按mapping开启
+    private String retryPolicy = "EXPONENTIAL"; //重试策略，可通过SPI扩展RetryPolicy
+    private Long retryBackoffMillis = 20L; //重试基础退避时间(毫秒)，第n次重试等待约retryBackoffMillis*2^(n-1)并加随机抖动，可在@Mapping、@SRpcClient或单次调用中覆盖
+    private Long retryMaxBackoffMillis = 1000L; //重试最大退避时间(毫秒)
+    private Integer retryBudgetPercent = 20; //重试预算，每个服务的重试请求不超过正常请求的该比例(%)
+    private Integer retryBudgetMinPerSecond = 10; //重试预算的保底值，每个服务每秒至少允许的重试次数，不受retryBudgetPercent限制，保证低流量服务及启动初期仍可重试
+    private Long resultCacheMaxSize = 10000L; //每个mapping最多缓存的调用结果数，结果缓存在@Mapping(cacheTtl)或单次调用参数中按mapping开启
     private Integer connectionSizePerNode = 3; //每个节点连接数
     private Integer connectionIdleTime = 180; //超过连接空闲时间(秒)未收发数据则关闭连接
     private Integer heartBeatTimeInterval = 30; //发送心跳包间隔时间(秒)
 
     private CompressType compressType = CompressType.SNAPPY; //压缩算法类型，无需压缩为NONE
     private SerializeType serializeType = SerializeType.PROTOSTUFF; //序列化类型，默认protostuff
+    private Integer compressThreshold = 512; //消息体小于该字节数时不压缩，0为全部压缩
+    private boolean adaptiveCompressEnable = false; //是否开启自适应压缩，按mapping统计压缩率及耗时，收益不足时自动关闭该mapping的压缩
+    private Integer protocolVersion = 2; //支持的最高协议版本，握手时与服务端协商，握手失败或未开启握手时使用v1
+    private boolean handshakeEnable = true; //是否在连接建立后与服务端握手，协商协议版本、序列化/压缩算法及特性
 
     private LoadBalanceRule loadBalanceRule = LoadBalanceRule.ROUND; //集群负载均衡策略
     private boolean excludeUnAvailableNodesEnable = true; //集群模式下是否排除不可用的节点
@@ -34,6 +49,12 @@ public class SRpcClientConfig extends TLSConfig {
     private Integer receiveBuf = 65535; //tcp接收缓冲区
     private Integer lowWaterLevel = 1024 * 1024; //netty单个连接低水位
     private Integer highWaterLevel = 10 * 1024 * 1024; //netty单个连接高水位(避免内存溢出)
+    private Long writableWaitTimeout = 200L; //连接超过高水位不可写时等待恢复的最长时间(毫秒)，超时返回服务不可用
+    private Integer maxInFlightPerConnection = 0; //每个连接最多同时等待响应的请求数，0为不限制，达到上限且同一节点无空闲连接时返回服务不可用
+    private boolean flushConsolidationEnable = false; //是否合并flush，同一轮任务内的多次写出只flush一次
+    private Integer flushConsolidationCount = 64; //合并flush时累积的最大写出次数，超过后立即flush
+    private Integer flushConsolidationBytes = 64 * 1024; //合并flush时累积的最大字节数，超过后立即flush
+    private boolean frameBatchEnable = false; //是否将合并flush的多个v2帧打包为一个批量帧，需对端握手支持
 
     private boolean trafficMonitorEnable = false; //是否开启流量控制
     private Long maxReadSpeed = 10 * 1000 * 1000L; //带宽限制，最大读取速度
@@ -227,4 +248,193 @@ public class SRpcClientConfig extends TLSConfig {
         this.serializeType = serializeType;
         return this;
     }
+
+    public boolean isAdaptiveCompressEnable() {
+        return adaptiveCompressEnable;
+    }
+
+    public SRpcClientConfig setAdaptiveCompressEnable(boolean adaptiveCompressEnable) {
+        this.adaptiveCompressEnable = adaptiveCompressEnable;
+        return this;
+    }
+
+    public Integer getCompressThreshold() {
+        return compressThreshold;
+    }
+
+    public SRpcClientConfig setCompressThreshold(Integer compressThreshold) {
+        this.compressThreshold = compressThreshold;
+        return this;
+    }
+
+    public Integer getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    public SRpcClientConfig setProtocolVersion(Integer protocolVersion) {
+        this.protocolVersion = protocolVersion;
+        return this;
+    }
+
+    public boolean isHandshakeEnable() {
+        return handshakeEnable;
+    }
+
+    public SRpcClientConfig setHandshakeEnable(boolean handshakeEnable) {
+        this.handshakeEnable = handshakeEnable;
+        return this;
+    }
+
+    public boolean isFrameBatchEnable() {
+        return frameBatchEnable;
+    }
+
+    public SRpcClientConfig setFrameBatchEnable(boolean frameBatchEnable) {
+        this.frameBatchEnable = frameBatchEnable;
+        return this;
+    }
+
+    public Integer getFlushConsolidationBytes() {
+        return flushConsolidationBytes;
+    }
+
+    public SRpcClientConfig setFlushConsolidationBytes(Integer flushConsolidationBytes) {
+        this.flushConsolidationBytes = flushConsolidationBytes;
+        return this;
+    }
+
+    public Integer getFlushConsolidationCount() {
+        return flushConsolidationCount;
+    }
+
+    public SRpcClientConfig setFlushConsolidationCount(Integer flushConsolidationCount) {
+        this.flushConsolidationCount = flushConsolidationCount;
+        return this;
+    }
+
+    public boolean isFlushConsolidationEnable() {
+        return flushConsolidationEnable;
+    }
+
+    public SRpcClientConfig setFlushConsolidationEnable(boolean flushConsolidationEnable) {
+        this.flushConsolidationEnable = flushConsolidationEnable;
+        return this;
+    }
+
+    public Long getRequestTimeoutMillis() {
+        return requestTimeoutMillis;
+    }
+
+    public SRpcClientConfig setRequestTimeoutMillis(Long requestTimeoutMillis) {
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        return this;
+    }
+
+    public boolean isVirtualThreadPinnedTrace() {
+        return virtualThreadPinnedTrace;
+    }
+
+    public SRpcClientConfig setVirtualThreadPinnedTrace(boolean virtualThreadPinnedTrace) {
+        this.virtualThreadPinnedTrace = virtualThreadPinnedTrace;
+        return this;
+    }
+
+    public Integer getVirtualThreadMaxConcurrency() {
+        return virtualThreadMaxConcurrency;
+    }
+
+    public SRpcClientConfig setVirtualThreadMaxConcurrency(Integer virtualThreadMaxConcurrency) {
+        this.virtualThreadMaxConcurrency = virtualThreadMaxConcurrency;
+        return this;
+    }
+
+    public boolean isVirtualThreadEnable() {
+        return virtualThreadEnable;
+    }
+
+    public SRpcClientConfig setVirtualThreadEnable(boolean virtualThreadEnable) {
+        this.virtualThreadEnable = virtualThreadEnable;
+        return this;
+    }
+
+    public Long getWritableWaitTimeout() {
+        return writableWaitTimeout;
+    }
+
+    public SRpcClientConfig setWritableWaitTimeout(Long writableWaitTimeout) {
+        this.writableWaitTimeout = writableWaitTimeout;
+        return this;
+    }
+
+    public Integer getMaxInFlightPerConnection() {
+        return maxInFlightPerConnection;
+    }
+
+    public SRpcClientConfig setMaxInFlightPerConnection(Integer maxInFlightPerConnection) {
+        this.maxInFlightPerConnection = maxInFlightPerConnection;
+        return this;
+    }
+
+    public Integer getHedgeBudgetPercent() {
+        return hedgeBudgetPercent;
+    }
+
+    public SRpcClientConfig setHedgeBudgetPercent(Integer hedgeBudgetPercent) {
+        this.hedgeBudgetPercent = hedgeBudgetPercent;
+        return this;
+    }
+
+    public Integer getRetryBudgetPercent() {
+        return retryBudgetPercent;
+    }
+
+    public SRpcClientConfig setRetryBudgetPercent(Integer retryBudgetPercent) {
+        this.retryBudgetPercent = retryBudgetPercent;
+        return this;
+    }
+
+    public Long getRetryMaxBackoffMillis() {
+        return retryMaxBackoffMillis;
+    }
+
+    public SRpcClientConfig setRetryMaxBackoffMillis(Long retryMaxBackoffMillis) {
+        this.retryMaxBackoffMillis = retryMaxBackoffMillis;
+        return this;
+    }
+
+    public Long getRetryBackoffMillis() {
+        return retryBackoffMillis;
+    }
+
+    public SRpcClientConfig setRetryBackoffMillis(Long retryBackoffMillis) {
+        this.retryBackoffMillis = retryBackoffMillis;
+        return this;
+    }
+
+    public String getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public SRpcClientConfig setRetryPolicy(String retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    public Long getResultCacheMaxSize() {
+        return resultCacheMaxSize;
+    }
+
+    public SRpcClientConfig setResultCacheMaxSize(Long resultCacheMaxSize) {
+        this.resultCacheMaxSize = resultCacheMaxSize;
+        return this;
+    }
+
+    public Integer getRetryBudgetMinPerSecond() {
+        return retryBudgetMinPerSecond;
+    }
+
+    public SRpcClientConfig setRetryBudgetMinPerSecond(Integer retryBudgetMinPerSecond) {
+        this.retryBudgetMinPerSecond = retryBudgetMinPerSecond;
+        return this;
+    }
 }
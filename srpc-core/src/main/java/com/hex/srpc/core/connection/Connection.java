@@ -2,14 +2,23 @@ package com.hex.srpc.core.connection;
 
 import com.hex.common.net.HostAndPort;
 import com.hex.srpc.core.protocol.Command;
+import com.hex.srpc.core.protocol.CommandBatch;
+import com.hex.srpc.core.protocol.Handshake;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.EventExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @author: hs
@@ -19,6 +28,16 @@ public class Connection implements IConnection {
 
     public static final AttributeKey<IConnection> CONN = AttributeKey.valueOf("CONNECTION");
 
+    /**
+     * 握手协商结果，握手可能早于连接对象创建完成，因此保存在channel上
+     */
+    public static final AttributeKey<Handshake> HANDSHAKE = AttributeKey.valueOf("HANDSHAKE");
+
+    /**
+     * 连接管理handler实际运行的线程，可写事件在该线程上触发，handler绑定独立的执行器组时与channel的IO线程不同
+     */
+    public static final AttributeKey<EventExecutor> HANDLER_EXECUTOR = AttributeKey.valueOf("HANDLER_EXECUTOR");
+
     private Long id;
 
     private Channel channel;
@@ -27,6 +46,19 @@ public class Connection implements IConnection {
 
     private long lastSendTime = System.currentTimeMillis();
 
+    /**
+     * 等待连接恢复可写，不使用synchronized以免虚拟线程被pinned
+     */
+    private final Lock writableLock = new ReentrantLock();
+    private final Condition writableCondition = writableLock.newCondition();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * 待写出的最大字节数，0为不限制
+     */
+    private long maxPendingWriteBytes;
+
     public Connection(Long id) {
         this.id = id;
     }
@@ -36,6 +68,16 @@ public class Connection implements IConnection {
         this.channel = channel;
     }
 
+    /**
+     * @param maxPendingWriteBytes 待写出的最大字节数，超过后关闭连接，0为不限制；
+     *                             用于服务端响应，客户端发送前已等待可写，无需限制
+     */
+    public Connection(Long id, Channel channel, long maxPendingWriteBytes) {
+        this.id = id;
+        this.channel = channel;
+        this.maxPendingWriteBytes = maxPendingWriteBytes;
+    }
+
     @Override
     public Long getId() {
         return this.id;
@@ -50,6 +92,8 @@ public class Connection implements IConnection {
             } catch (Exception e) {
                 logger.error("connection close failed!", e);
             }
+            // 唤醒等待可写的调用方
+            writabilityChanged();
         }
     }
 
@@ -65,13 +109,129 @@ public class Connection implements IConnection {
 
     @Override
     public void send(Command command) {
-        if (this.channel.isWritable() && isAvailable()) {
-            this.channel.writeAndFlush(command);
-            this.lastSendTime = System.currentTimeMillis();
-        } else {
-            logger.warn("connection is unWritable now ,id={}, command={}", id, command);
-            close();
+        if (!isAvailable()) {
+            logger.warn("connection is unavailable now, id={}, command={}", id, command);
+            return;
+        }
+        // 客户端超过高水位时由调用方在发送前等待可写，不在此处关闭连接；
+        // 服务端(设置了maxPendingWriteBytes)待写出数据超过上限时关闭连接
+        if (exceedPendingWriteLimit()) {
+            return;
         }
+        this.channel.writeAndFlush(command);
+        this.lastSendTime = System.currentTimeMillis();
+    }
+
+    @Override
+    public void send(CommandBatch batch) {
+        if (!isAvailable()) {
+            logger.warn("connection is unavailable now, id={}, batch={}", id, batch);
+            return;
+        }
+        if (exceedPendingWriteLimit()) {
+            return;
+        }
+        this.channel.writeAndFlush(batch);
+        this.lastSendTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 待写出的数据超过上限时关闭连接，防止对端读取过慢时出站缓冲区无限增长
+     */
+    private boolean exceedPendingWriteLimit() {
+        if (maxPendingWriteBytes <= 0 || channel.isWritable()) {
+            return false;
+        }
+        long pending = getPendingWriteBytes();
+        if (pending <= maxPendingWriteBytes) {
+            return false;
+        }
+        logger.warn("connection pending write bytes {} exceed the limit {}, close it! id={}",
+                pending, maxPendingWriteBytes, id);
+        close();
+        return true;
+    }
+
+    @Override
+    public boolean isWritable() {
+        return channel != null && channel.isWritable();
+    }
+
+    @Override
+    public boolean awaitWritable(long timeoutMillis) {
+        if (isWritable()) {
+            return true;
+        }
+        // 在触发可写事件的线程上等待会阻塞可写事件本身
+        if (timeoutMillis <= 0 || channel == null || inWritabilityExecutor()) {
+            return false;
+        }
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        writableLock.lock();
+        try {
+            while (!isWritable() && isAvailable()) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = writableCondition.awaitNanos(remainingNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            writableLock.unlock();
+        }
+        return isWritable();
+    }
+
+    private boolean inWritabilityExecutor() {
+        if (channel.eventLoop().inEventLoop()) {
+            return true;
+        }
+        EventExecutor executor = channel.attr(HANDLER_EXECUTOR).get();
+        return executor != null && executor.inEventLoop();
+    }
+
+    @Override
+    public void writabilityChanged() {
+        writableLock.lock();
+        try {
+            writableCondition.signalAll();
+        } finally {
+            writableLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean acquireInFlight(int maxInFlight) {
+        for (; ; ) {
+            int current = inFlight.get();
+            if (maxInFlight > 0 && current >= maxInFlight) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void releaseInFlight() {
+        inFlight.decrementAndGet();
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public long getPendingWriteBytes() {
+        if (channel == null) {
+            return 0;
+        }
+        ChannelOutboundBuffer outboundBuffer = channel.unsafe().outboundBuffer();
+        return outboundBuffer == null ? 0 : outboundBuffer.totalPendingWriteBytes();
     }
 
     @Override
@@ -79,6 +239,11 @@ public class Connection implements IConnection {
         return lastSendTime;
     }
 
+    @Override
+    public Handshake getHandshake() {
+        return channel == null ? null : channel.attr(HANDSHAKE).get();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -53,15 +53,33 @@ public class ConnectionPool implements IConnectionPool {
             throw new ConnectionException();
         }
         connectionInit();
-        if (!connections.isEmpty()) {
-            IConnection connection = connections.get(incrementAndGetModulo(currentSize()));
+        IConnection[] snapshot = connections.toArray(new IConnection[0]);
+        if (snapshot.length == 0) {
+            throw new ConnectionException("no connection available, node: " + remoteAddress);
+        }
+        // 从轮询位置开始选择在途请求最少的连接，负载相同时保持轮询
+        int start = incrementAndGetModulo(snapshot.length);
+        IConnection selected = null;
+        boolean hasUnavailable = false;
+        for (int i = 0; i < snapshot.length; i++) {
+            IConnection connection = snapshot[(start + i) % snapshot.length];
             if (!connection.isAvailable()) {
                 releaseConnection(connection.getId());
-                connection = getConnection();
+                hasUnavailable = true;
+                continue;
+            }
+            if (selected == null || isLessLoaded(connection, selected)) {
+                selected = connection;
+            }
+        }
+        if (selected == null) {
+            if (hasUnavailable) {
+                // 全部不可用，重新建立连接
+                return getConnection();
             }
-            return connection;
+            throw new ConnectionException("no connection available, node: " + remoteAddress);
         }
-        throw new ConnectionException("no connection available, node: " + remoteAddress);
+        return selected;
     }
 
     @Override
@@ -158,6 +176,17 @@ public class ConnectionPool implements IConnectionPool {
 
     }
 
+    /**
+     * 可写的连接优先(超过高水位的连接排在最后)，其次为在途请求数少的连接
+     */
+    private static boolean isLessLoaded(IConnection connection, IConnection selected) {
+        boolean writable = connection.isWritable();
+        if (writable != selected.isWritable()) {
+            return writable;
+        }
+        return connection.getInFlight() < selected.getInFlight();
+    }
+
     private int incrementAndGetModulo(int modulo) {
         for (; ; ) {
             int current = counter.get();
@@ -2,6 +2,8 @@ package com.hex.srpc.core.connection;
 
 import com.hex.common.net.HostAndPort;
 import com.hex.srpc.core.protocol.Command;
+import com.hex.srpc.core.protocol.CommandBatch;
+import com.hex.srpc.core.protocol.Handshake;
 
 /**
  * @author: hs
@@ -43,10 +45,71 @@ public interface IConnection {
      */
     void send(Command command);
 
+    /**
+     * 批量发送指令，一次写出
+     *
+     * @param batch
+     */
+    void send(CommandBatch batch);
+
+    /**
+     * 连接是否可写，超过高水位时不可写
+     *
+     * @return
+     */
+    boolean isWritable();
+
+    /**
+     * 等待连接恢复可写
+     *
+     * @param timeoutMillis 最长等待时间(毫秒)
+     * @return 超时、连接不可用或在触发可写事件的线程上调用时返回false
+     */
+    boolean awaitWritable(long timeoutMillis);
+
+    /**
+     * 连接可写状态变化时调用，唤醒等待可写的调用方
+     */
+    void writabilityChanged();
+
+    /**
+     * 占用一个在途请求名额
+     *
+     * @param maxInFlight 单个连接最多的在途请求数，0为不限制
+     * @return 已达到上限时返回false
+     */
+    boolean acquireInFlight(int maxInFlight);
+
+    /**
+     * 请求完成(收到响应或超时)后释放在途请求名额
+     */
+    void releaseInFlight();
+
+    /**
+     * 等待响应的在途请求数
+     *
+     * @return
+     */
+    int getInFlight();
+
+    /**
+     * 已写入但尚未发送到socket的字节数
+     *
+     * @return
+     */
+    long getPendingWriteBytes();
+
     /**
      * 获取最后一次发送时间
      *
      * @return
      */
     long getLastSendTime();
+
+    /**
+     * 获取握手协商结果，握手完成前为null
+     *
+     * @return
+     */
+    Handshake getHandshake();
 }
@@ -4,12 +4,15 @@ import com.hex.srpc.core.connection.IConnection;
 import com.hex.srpc.core.connection.IConnectionPool;
 import com.hex.common.net.HostAndPort;
 import com.hex.srpc.core.node.INodeManager;
+import com.hex.srpc.core.protocol.Command;
+import com.hex.srpc.core.protocol.CommandBatch;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 
 import java.net.InetSocketAddress;
 
 import static com.hex.srpc.core.connection.Connection.CONN;
+import static com.hex.srpc.core.connection.Connection.HANDLER_EXECUTOR;
 
 /**
  * @author: hs
@@ -18,6 +21,34 @@ abstract class AbstractConnManagerHandler extends ChannelDuplexHandler {
 
     INodeManager nodeManager;
 
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        // 记录可写事件所在的线程，供发送方判断能否等待可写
+        ctx.channel().attr(HANDLER_EXECUTOR).set(ctx.executor());
+        super.handlerAdded(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof CommandBatch) {
+            // 批量帧拆分为单个指令处理
+            for (Command command : ((CommandBatch) msg).getCommands()) {
+                channelRead(ctx, command);
+            }
+            return;
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        IConnection connection = ctx.channel().attr(CONN).get();
+        if (connection != null && ctx.channel().isWritable()) {
+            connection.writabilityChanged();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
     void close(ChannelHandlerContext ctx) {
         //获取连接
         IConnection connection = ctx.channel().attr(CONN).get();
@@ -1,6 +1,12 @@
 package com.hex.srpc.core.handler.connection;
 
+import com.hex.common.constant.ResponseStatus;
+import com.hex.common.id.IdGenerator;
+import com.hex.srpc.core.config.SRpcClientConfig;
 import com.hex.srpc.core.node.INodeManager;
+import com.hex.srpc.core.protocol.Handshake;
+import com.hex.srpc.core.protocol.RpcRequest;
+import com.hex.srpc.core.protocol.RpcResponse;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import io.netty.handler.timeout.IdleState;
@@ -10,14 +16,71 @@ import org.slf4j.LoggerFactory;
 
 import java.net.SocketAddress;
 
+import static com.hex.srpc.core.connection.Connection.HANDSHAKE;
+
 /**
  * @author: hs
  */
 public class NettyClientConnManageHandler extends AbstractConnManagerHandler {
     private static final Logger logger = LoggerFactory.getLogger(NettyClientConnManageHandler.class);
 
-    public NettyClientConnManageHandler(INodeManager nodeManager) {
+    private SRpcClientConfig config;
+
+    /**
+     * 等待响应的握手请求seq
+     */
+    private Long handshakeSeq;
+
+    public NettyClientConnManageHandler(INodeManager nodeManager, SRpcClientConfig config) {
         super.nodeManager = nodeManager;
+        this.config = config;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        if (config.isHandshakeEnable()) {
+            // 连接建立后发送握手请求，协商完成前按v1及本端配置通信
+            Handshake local = Handshake.local(config.getProtocolVersion().byteValue(),
+                    config.getSerializeType(), config.getCompressType());
+            RpcRequest request = new RpcRequest();
+            request.setSeq(IdGenerator.getId());
+            request.setMapping(Handshake.MAPPING);
+            request.setTimestamp(System.currentTimeMillis());
+            request.setArgs(local.toArgs());
+            handshakeSeq = request.getSeq();
+            ctx.writeAndFlush(request);
+        }
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (handshakeSeq != null && msg instanceof RpcResponse
+                && handshakeSeq.equals(((RpcResponse) msg).getSeq())) {
+            handshakeSeq = null;
+            handshakeComplete(ctx, (RpcResponse) msg);
+            return;
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    private void handshakeComplete(ChannelHandlerContext ctx, RpcResponse response) {
+        Handshake handshake = null;
+        if (ResponseStatus.SUCCESS_CODE.equals(response.getStatus())) {
+            try {
+                handshake = Handshake.fromArgs(response.getBody());
+            } catch (Exception e) {
+                logger.warn("illegal handshake response from {}", ctx.channel().remoteAddress(), e);
+            }
+        }
+        if (handshake == null) {
+            // 服务端未升级，不支持握手
+            handshake = Handshake.legacy(config.getSerializeType(), config.getCompressType());
+        }
+        ctx.channel().attr(HANDSHAKE).set(handshake);
+        if (logger.isDebugEnabled()) {
+            logger.debug("rpc client handshake with {} complete: {}", ctx.channel().remoteAddress(), handshake);
+        }
     }
 
     @Override
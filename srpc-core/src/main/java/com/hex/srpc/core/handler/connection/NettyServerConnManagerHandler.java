@@ -5,7 +5,11 @@ import com.hex.srpc.core.connection.Connection;
 import com.hex.srpc.core.connection.IConnectionPool;
 import com.hex.common.id.IdGenerator;
 import com.hex.common.net.HostAndPort;
+import com.hex.common.constant.RpcConstant;
 import com.hex.srpc.core.node.INodeManager;
+import com.hex.srpc.core.protocol.Handshake;
+import com.hex.srpc.core.protocol.RpcRequest;
+import com.hex.srpc.core.protocol.RpcResponse;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import org.slf4j.Logger;
@@ -14,6 +18,7 @@ import org.slf4j.LoggerFactory;
 import java.net.InetSocketAddress;
 
 import static com.hex.srpc.core.connection.Connection.CONN;
+import static com.hex.srpc.core.connection.Connection.HANDSHAKE;
 
 /**
  * @author: hs
@@ -22,6 +27,7 @@ public class NettyServerConnManagerHandler extends AbstractConnManagerHandler {
     private static final Logger logger = LoggerFactory.getLogger(NettyServerConnManagerHandler.class);
 
     private SRpcServerConfig serverConfig;
+    private Handshake localHandshake;
 
     public NettyServerConnManagerHandler(INodeManager nodeManager, SRpcServerConfig serverConfig) {
         super.nodeManager = nodeManager;
@@ -52,7 +58,7 @@ public class NettyServerConnManagerHandler extends AbstractConnManagerHandler {
 
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
-        Connection conn = new Connection(IdGenerator.getId(), ctx.channel());
+        Connection conn = new Connection(IdGenerator.getId(), ctx.channel(), serverConfig.getMaxPendingWriteBytes());
         HostAndPort node = HostAndPort.from((InetSocketAddress) ctx.channel().remoteAddress());
         nodeManager.addNode(node);
         IConnectionPool connectionPool = nodeManager.getConnectionPool(node);
@@ -65,6 +71,43 @@ public class NettyServerConnManagerHandler extends AbstractConnManagerHandler {
         super.channelActive(ctx);
     }
 
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof RpcRequest && Handshake.MAPPING.equals(((RpcRequest) msg).getMapping())) {
+            handshake(ctx, (RpcRequest) msg);
+            return;
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    /**
+     * 处理客户端握手，回复协商结果后按协商结果编码
+     */
+    private void handshake(ChannelHandlerContext ctx, RpcRequest request) {
+        Handshake negotiated;
+        try {
+            Handshake remote = Handshake.fromArgs(request.getArgs());
+            negotiated = Handshake.negotiate(localHandshake(), remote);
+        } catch (Exception e) {
+            logger.warn("illegal handshake request from {}", ctx.channel().remoteAddress(), e);
+            ctx.writeAndFlush(RpcResponse.clientError(request.getSeq()));
+            return;
+        }
+        ctx.writeAndFlush(RpcResponse.success(request.getSeq(), Handshake.MAPPING, negotiated.toArgs()));
+        ctx.channel().attr(HANDSHAKE).set(negotiated);
+        if (logger.isDebugEnabled()) {
+            logger.debug("rpc server handshake with {} complete: {}", ctx.channel().remoteAddress(), negotiated);
+        }
+    }
+
+    private Handshake localHandshake() {
+        if (localHandshake == null) {
+            localHandshake = Handshake.local(RpcConstant.VERSION, serverConfig.getSerializeType(),
+                    serverConfig.getCompressType());
+        }
+        return localHandshake;
+    }
+
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         if (logger.isDebugEnabled()) {
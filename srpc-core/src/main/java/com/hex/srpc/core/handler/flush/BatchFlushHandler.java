@@ -0,0 +1,250 @@
+package com.hex.srpc.core.handler.flush;
+
+import com.hex.common.constant.RpcConstant;
+import com.hex.srpc.core.connection.Connection;
+import com.hex.srpc.core.protocol.Handshake;
+import com.hex.srpc.core.rpc.codec.ProtocolV2;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author: hs
+ * <p>
+ * flush合并，位于编码器之后，处理的是编码后的帧
+ * 同一轮executor任务内的多次flush合并为一次，累积的写出次数或字节数超过上限时立即flush，
+ * 正在读取时等到读取完成后再flush。
+ * 开启帧打包且对端握手支持批量帧时，将累积的多个v2帧打包为一个批量帧写出，帧格式见{@link ProtocolV2}
+ */
+public class BatchFlushHandler extends ChannelDuplexHandler {
+
+    private static final int MAGIC_VERSION_LENGTH = 3;
+    private static final int PREFIX_LENGTH = 9;
+
+    private final int maxPendingWrites;
+    private final int maxPendingBytes;
+    private final boolean frameBatch;
+
+    private final List<ByteBuf> pendingFrames = new ArrayList<>();
+    private final List<ChannelPromise> pendingPromises = new ArrayList<>();
+    private int pendingWrites;
+    private int pendingBytes;
+    private boolean flushPending;
+    private boolean flushScheduled;
+    private boolean readInProgress;
+    private ChannelHandlerContext ctx;
+
+    private final Runnable flushTask = () -> {
+        flushScheduled = false;
+        if (flushPending && !readInProgress) {
+            flushNow(ctx);
+        }
+    };
+
+    /**
+     * @param maxPendingWrites 最多累积的写出次数
+     * @param maxPendingBytes  最多累积的字节数
+     * @param frameBatch       是否将累积的帧打包为一个批量帧
+     */
+    public BatchFlushHandler(int maxPendingWrites, int maxPendingBytes, boolean frameBatch) {
+        this.maxPendingWrites = Math.max(maxPendingWrites, 1);
+        this.maxPendingBytes = Math.max(maxPendingBytes, 1);
+        this.frameBatch = frameBatch;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        flushIfNeeded(ctx);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof ByteBuf) {
+            ByteBuf frame = (ByteBuf) msg;
+            pendingWrites++;
+            pendingBytes += frame.readableBytes();
+            if (isBatchable(ctx, frame)) {
+                // 暂存，flush时打包
+                pendingFrames.add(frame);
+                pendingPromises.add(promise);
+            } else {
+                writePendingFrames(ctx);
+                ctx.write(msg, promise);
+            }
+            if (pendingWrites >= maxPendingWrites || pendingBytes >= maxPendingBytes) {
+                flushNow(ctx);
+            }
+            return;
+        }
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        flushPending = true;
+        if (readInProgress) {
+            // 读取完成后统一flush
+            return;
+        }
+        if (!flushScheduled) {
+            flushScheduled = true;
+            ctx.executor().execute(flushTask);
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        readInProgress = true;
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        readInProgress = false;
+        flushIfNeeded(ctx);
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (!ctx.channel().isWritable()) {
+            // 不可写时尽快写出已累积的数据
+            flushIfNeeded(ctx);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        readInProgress = false;
+        flushIfNeeded(ctx);
+        ctx.fireExceptionCaught(cause);
+    }
+
+    @Override
+    public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        readInProgress = false;
+        flushIfNeeded(ctx);
+        ctx.disconnect(promise);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        readInProgress = false;
+        flushIfNeeded(ctx);
+        ctx.close(promise);
+    }
+
+    private void flushIfNeeded(ChannelHandlerContext ctx) {
+        if (flushPending || pendingWrites > 0) {
+            flushNow(ctx);
+        }
+    }
+
+    private void flushNow(ChannelHandlerContext ctx) {
+        writePendingFrames(ctx);
+        pendingWrites = 0;
+        pendingBytes = 0;
+        flushPending = false;
+        ctx.flush();
+    }
+
+    /**
+     * 只有握手协商支持批量帧且为v2帧时才打包，批量调用已编码的批量帧不再嵌套打包
+     */
+    private boolean isBatchable(ChannelHandlerContext ctx, ByteBuf frame) {
+        if (!frameBatch || frame.readableBytes() < PREFIX_LENGTH + ProtocolV2.BATCH_HEADER_LENGTH
+                || frame.getByte(frame.readerIndex() + 2) != RpcConstant.VERSION
+                || (frame.getByte(frame.readerIndex() + PREFIX_LENGTH + 8) & ProtocolV2.FLAG_BATCH) != 0) {
+            return false;
+        }
+        Handshake handshake = ctx.channel().attr(Connection.HANDSHAKE).get();
+        return handshake != null && handshake.hasFeature(Handshake.FEATURE_BATCH);
+    }
+
+    private void writePendingFrames(ChannelHandlerContext ctx) {
+        int size = pendingFrames.size();
+        if (size == 0) {
+            return;
+        }
+        if (size == 1) {
+            ctx.write(pendingFrames.get(0), pendingPromises.get(0));
+        } else {
+            int maxFrameLength = ctx.channel().attr(Connection.HANDSHAKE).get().getMaxFrameLength();
+            int start = 0;
+            int length = PREFIX_LENGTH + ProtocolV2.BATCH_HEADER_LENGTH;
+            for (int i = 0; i < size; i++) {
+                int frameLength = pendingFrames.get(i).readableBytes() - MAGIC_VERSION_LENGTH;
+                if (i > start && length + frameLength > maxFrameLength) {
+                    writeBatch(ctx, start, i);
+                    start = i;
+                    length = PREFIX_LENGTH + ProtocolV2.BATCH_HEADER_LENGTH;
+                }
+                length += frameLength;
+            }
+            writeBatch(ctx, start, size);
+        }
+        pendingFrames.clear();
+        pendingPromises.clear();
+    }
+
+    /**
+     * 将[from, to)范围内的帧打包写出，子帧去掉魔数和版本号，直接组合原有内存不复制
+     */
+    private void writeBatch(ChannelHandlerContext ctx, int from, int to) {
+        if (to - from == 1) {
+            ctx.write(pendingFrames.get(from), pendingPromises.get(from));
+            return;
+        }
+        ByteBuf first = pendingFrames.get(from);
+        ByteBuf header = ctx.alloc().buffer(PREFIX_LENGTH + ProtocolV2.BATCH_HEADER_LENGTH);
+        header.writeShort(RpcConstant.MAGIC_NUMBER);
+        header.writeByte(RpcConstant.VERSION);
+        // 类型字段沿用第一个子帧的序列化算法，压缩标记为NONE
+        header.writeByte(first.getByte(first.readerIndex() + MAGIC_VERSION_LENGTH) & 0xf0);
+        header.writeBoolean(first.getBoolean(first.readerIndex() + MAGIC_VERSION_LENGTH + 1));
+        int lengthIndex = header.writerIndex();
+        header.writeInt(0);
+        header.writeLong(0L);
+        header.writeByte(ProtocolV2.FLAG_BATCH);
+        header.writeInt(to - from);
+
+        CompositeByteBuf batch = ctx.alloc().compositeBuffer(to - from + 1);
+        int length = ProtocolV2.BATCH_HEADER_LENGTH;
+        for (int i = from; i < to; i++) {
+            ByteBuf frame = pendingFrames.get(i);
+            frame.skipBytes(MAGIC_VERSION_LENGTH);
+            length += frame.readableBytes();
+        }
+        header.setInt(lengthIndex, length);
+        batch.addComponent(true, header);
+        for (int i = from; i < to; i++) {
+            batch.addComponent(true, pendingFrames.get(i));
+        }
+
+        List<ChannelPromise> promises = new ArrayList<>(pendingPromises.subList(from, to));
+        ctx.write(batch).addListener((ChannelFuture future) -> {
+            for (ChannelPromise promise : promises) {
+                if (promise.isVoid()) {
+                    continue;
+                }
+                if (future.isSuccess()) {
+                    promise.trySuccess();
+                } else {
+                    promise.tryFailure(future.cause());
+                }
+            }
+        });
+    }
+}
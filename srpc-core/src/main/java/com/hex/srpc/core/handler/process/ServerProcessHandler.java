@@ -6,6 +6,7 @@ import com.hex.srpc.core.chain.dealing.DispatchDealing;
 import com.hex.srpc.core.chain.dealing.DuplicateDealing;
 import com.hex.srpc.core.config.SRpcServerConfig;
 import com.hex.srpc.core.extension.DuplicatedMarker;
+import com.hex.srpc.core.invoke.RpcContext;
 import com.hex.srpc.core.node.INodeManager;
 import com.hex.srpc.core.protocol.Command;
 import com.hex.srpc.core.protocol.RpcRequest;
@@ -34,12 +35,17 @@ public class ServerProcessHandler extends AbstractProcessHandler {
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, Command command) throws Exception {
+        // 已过期的请求不再进入业务线程池
+        if (command instanceof RpcRequest && RpcContext.isExpired(((RpcRequest) command).getDeadline())) {
+            DispatchDealing.dropExpired((RpcRequest) command, ctx.channel().attr(CONN).get());
+            return;
+        }
         // 生成处理责任链
         DealingChain chain = new DealingChain();
         if (duplicatedMarker != null) {
             chain.addDealing(new DuplicateDealing(duplicatedMarker));
         }
-        chain.addDealing(new DispatchDealing());
+        chain.addDealing(new DispatchDealing(config.getAsyncRouteTimeout()));
         // 上下文，携带消息内容
         DealingContext context = new DealingContext();
         context.setClient(false);
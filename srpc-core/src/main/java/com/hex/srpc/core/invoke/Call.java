@@ -0,0 +1,46 @@
+package com.hex.srpc.core.invoke;
+
+import java.util.Arrays;
+
+/**
+ * @author: hs
+ * <p>
+ * 批量调用中的单个调用
+ */
+public class Call {
+
+    /**
+     * 服务端对应处理器的mapping标识
+     */
+    private final String mapping;
+
+    /**
+     * 请求实体列表
+     */
+    private final Object[] args;
+
+    private Call(String mapping, Object[] args) {
+        this.mapping = mapping;
+        this.args = args;
+    }
+
+    public static Call of(String mapping, Object... args) {
+        return new Call(mapping, args);
+    }
+
+    public String getMapping() {
+        return mapping;
+    }
+
+    public Object[] getArgs() {
+        return args;
+    }
+
+    @Override
+    public String toString() {
+        return "Call{" +
+                "mapping='" + mapping + '\'' +
+                ", args=" + Arrays.toString(args) +
+                '}';
+    }
+}
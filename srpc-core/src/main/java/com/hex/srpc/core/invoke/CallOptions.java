@@ -0,0 +1,133 @@
+package com.hex.srpc.core.invoke;
+
+/**
+ * @author: hs
+ * <p>
+ * 单次调用的参数，未设置的项使用客户端配置
+ */
+public class CallOptions {
+
+    /**
+     * 请求超时时间(毫秒)，0为使用客户端配置
+     */
+    private long timeoutMillis;
+
+    /**
+     * 请求超时重试次数
+     */
+    private int retryTimes;
+
+    /**
+     * 重试基础退避时间(毫秒)，0为使用客户端配置
+     */
+    private long retryBackoffMillis;
+
+    /**
+     * 对冲延迟(毫秒)，超过该时间未收到响应时向其他节点发送相同请求，先到的响应生效；
+     * 0为不对冲，{@link HedgePolicy#P95}为使用该mapping最近响应时间的p95，只应用于幂等的mapping
+     */
+    private long hedgeDelayMillis;
+
+    /**
+     * 结果缓存时间(毫秒)，0为不缓存，仅同步调用生效，只应用于读多写少的幂等mapping
+     */
+    private long cacheTtlMillis;
+
+    /**
+     * 结果缓存后台刷新时间(毫秒)，超过该时间后访问仍返回旧值并在后台刷新，0为不刷新
+     */
+    private long cacheRefreshMillis;
+
+    /**
+     * 是否合并请求：mapping及参数都相同的并发调用共用一次请求，只应用于幂等的mapping
+     */
+    private boolean coalesce;
+
+    public static CallOptions timeout(long timeoutMillis) {
+        return new CallOptions().setTimeoutMillis(timeoutMillis);
+    }
+
+    public static CallOptions retry(int retryTimes) {
+        return new CallOptions().setRetryTimes(retryTimes);
+    }
+
+    public static CallOptions hedge(long hedgeDelayMillis) {
+        return new CallOptions().setHedgeDelayMillis(hedgeDelayMillis);
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public CallOptions setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        return this;
+    }
+
+    public int getRetryTimes() {
+        return retryTimes;
+    }
+
+    public CallOptions setRetryTimes(int retryTimes) {
+        this.retryTimes = retryTimes;
+        return this;
+    }
+
+    public long getRetryBackoffMillis() {
+        return retryBackoffMillis;
+    }
+
+    public CallOptions setRetryBackoffMillis(long retryBackoffMillis) {
+        this.retryBackoffMillis = retryBackoffMillis;
+        return this;
+    }
+
+    public long getHedgeDelayMillis() {
+        return hedgeDelayMillis;
+    }
+
+    public CallOptions setHedgeDelayMillis(long hedgeDelayMillis) {
+        this.hedgeDelayMillis = hedgeDelayMillis;
+        return this;
+    }
+
+    public long getCacheTtlMillis() {
+        return cacheTtlMillis;
+    }
+
+    public CallOptions setCacheTtlMillis(long cacheTtlMillis) {
+        this.cacheTtlMillis = cacheTtlMillis;
+        return this;
+    }
+
+    public long getCacheRefreshMillis() {
+        return cacheRefreshMillis;
+    }
+
+    public CallOptions setCacheRefreshMillis(long cacheRefreshMillis) {
+        this.cacheRefreshMillis = cacheRefreshMillis;
+        return this;
+    }
+
+    public boolean isCoalesce() {
+        return coalesce;
+    }
+
+    public CallOptions setCoalesce(boolean coalesce) {
+        this.coalesce = coalesce;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "CallOptions{" +
+                "timeoutMillis=" + timeoutMillis +
+                ", retryTimes=" + retryTimes +
+                ", retryBackoffMillis=" + retryBackoffMillis +
+                ", hedgeDelayMillis=" + hedgeDelayMillis +
+                ", cacheTtlMillis=" + cacheTtlMillis +
+                ", cacheRefreshMillis=" + cacheRefreshMillis +
+                ", coalesce=" + coalesce +
+                '}';
+    }
+}
@@ -0,0 +1,150 @@
+package com.hex.srpc.core.invoke;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author: hs
+ * <p>
+ * 对冲请求策略及统计
+ * 对冲延迟可以是固定值，也可以使用该mapping最近响应时间的p95；
+ * 对冲带来的额外请求不超过开启对冲的请求的budgetPercent%，见{@link RequestBudget}
+ */
+public class HedgePolicy {
+
+    /**
+     * 对冲延迟使用该mapping最近响应时间的p95
+     */
+    public static final long P95 = -1;
+
+    private final RequestBudget budget;
+    private final ConcurrentMap<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    private final LongAdder hedgeCount = new LongAdder();
+    private final LongAdder hedgeWinCount = new LongAdder();
+
+    /**
+     * @param budgetPercent 对冲请求占正常请求的最大比例(%)，0为不发送对冲请求
+     */
+    public HedgePolicy(int budgetPercent) {
+        this.budget = new RequestBudget(budgetPercent);
+    }
+
+    /**
+     * 本次请求的对冲延迟
+     *
+     * @param mapping          请求mapping
+     * @param hedgeDelayMillis 指定的对冲延迟，{@link #P95}为使用p95
+     * @return 对冲延迟(毫秒)，小于等于0表示不对冲(p95样本不足时)
+     */
+    public long hedgeDelay(String mapping, long hedgeDelayMillis) {
+        if (hedgeDelayMillis != P95) {
+            return hedgeDelayMillis;
+        }
+        LatencyWindow window = latencies.get(mapping);
+        return window == null ? 0 : window.p95;
+    }
+
+    /**
+     * 开启对冲的请求发出时调用，累积对冲令牌
+     */
+    public void onRequest() {
+        budget.onRequest();
+    }
+
+    /**
+     * 获取一次对冲的令牌，超出预算时返回false
+     */
+    public boolean tryAcquire() {
+        if (budget.tryAcquire()) {
+            hedgeCount.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 对冲请求先于原请求返回
+     */
+    public void hedgeWon() {
+        hedgeWinCount.increment();
+    }
+
+    /**
+     * 记录一次成功请求的响应时间
+     */
+    public void record(String mapping, long latencyMillis) {
+        latencies.computeIfAbsent(mapping, k -> new LatencyWindow()).record(latencyMillis);
+    }
+
+    /**
+     * 已发送的对冲请求数
+     */
+    public long getHedgeCount() {
+        return hedgeCount.sum();
+    }
+
+    /**
+     * 对冲请求先返回的次数
+     */
+    public long getHedgeWinCount() {
+        return hedgeWinCount.sum();
+    }
+
+    /**
+     * 因超出预算未发送的对冲请求数
+     */
+    public long getBudgetRejectCount() {
+        return budget.getRejectCount();
+    }
+
+    /**
+     * 对冲请求胜出率
+     */
+    public double getHedgeWinRate() {
+        long count = hedgeCount.sum();
+        return count == 0 ? 0D : (double) hedgeWinCount.sum() / count;
+    }
+
+    @Override
+    public String toString() {
+        return "HedgePolicy{" +
+                "budgetPercent=" + budget.getPercent() +
+                ", hedgeCount=" + getHedgeCount() +
+                ", hedgeWinCount=" + getHedgeWinCount() +
+                ", budgetRejectCount=" + getBudgetRejectCount() +
+                '}';
+    }
+
+    /**
+     * 最近响应时间的滑动窗口，每累积一定样本重新计算一次p95
+     */
+    private static class LatencyWindow {
+        private static final int SIZE = 128;
+        private static final int MIN_SAMPLES = 32;
+        private static final int RECOMPUTE_INTERVAL = 32;
+
+        private final AtomicLongArray samples = new AtomicLongArray(SIZE);
+        private final AtomicInteger index = new AtomicInteger();
+        private volatile long p95;
+
+        void record(long latencyMillis) {
+            int i = index.getAndIncrement() & Integer.MAX_VALUE;
+            samples.set(i % SIZE, latencyMillis);
+            int count = i + 1;
+            if (count >= MIN_SAMPLES && count % RECOMPUTE_INTERVAL == 0) {
+                int size = Math.min(count, SIZE);
+                long[] sorted = new long[size];
+                for (int j = 0; j < size; j++) {
+                    sorted[j] = samples.get(j);
+                }
+                Arrays.sort(sorted);
+                p95 = Math.max(sorted[(int) Math.ceil(size * 0.95) - 1], 1L);
+            }
+        }
+    }
+}
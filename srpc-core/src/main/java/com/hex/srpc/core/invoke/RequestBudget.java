@@ -0,0 +1,110 @@
+package com.hex.srpc.core.invoke;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author: hs
+ * <p>
+ * 额外请求(重试、对冲)的令牌桶预算
+ * 每个正常请求累积percent/100个令牌，每个额外请求消耗一个，保证额外请求不超过正常请求的percent%；
+ * 另外每秒补充minPerSecond个令牌作为保底(初始即有一秒的保底令牌)，低流量及刚启动时也能进行少量额外请求
+ */
+public class RequestBudget {
+
+    /**
+     * 一个额外请求消耗的令牌数，令牌按百分比计
+     */
+    private static final long COST = 100;
+
+    /**
+     * 最多累积的令牌，限制突发的额外请求数量
+     */
+    private static final long MAX_TOKENS = 100 * COST;
+
+    private final int percent;
+    private final int minPerSecond;
+    private final AtomicLong tokens;
+    private final AtomicLong lastRefillMillis = new AtomicLong(System.currentTimeMillis());
+    private final LongAdder rejectCount = new LongAdder();
+
+    /**
+     * @param percent 额外请求占正常请求的最大比例(%)，0为不允许额外请求
+     */
+    public RequestBudget(int percent) {
+        this(percent, 0);
+    }
+
+    /**
+     * @param percent      额外请求占正常请求的最大比例(%)，0为不允许额外请求
+     * @param minPerSecond 每秒至少允许的额外请求数，percent为0时不生效
+     */
+    public RequestBudget(int percent, int minPerSecond) {
+        this.percent = Math.max(percent, 0);
+        this.minPerSecond = this.percent == 0 ? 0 : Math.max(minPerSecond, 0);
+        this.tokens = new AtomicLong(Math.min(this.minPerSecond * COST, MAX_TOKENS));
+    }
+
+    /**
+     * 正常请求发出时调用，累积令牌
+     */
+    public void onRequest() {
+        if (percent == 0) {
+            return;
+        }
+        addTokens(percent);
+    }
+
+    /**
+     * 获取一个额外请求的令牌，超出预算时返回false
+     */
+    public boolean tryAcquire() {
+        refill();
+        for (; ; ) {
+            long current = tokens.get();
+            if (current < COST) {
+                rejectCount.increment();
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - COST)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 按距上次补充经过的时间补充保底令牌
+     */
+    private void refill() {
+        if (minPerSecond == 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long last = lastRefillMillis.get();
+        long refill = (now - last) * minPerSecond * COST / 1000;
+        // 不足一个单位时不更新时间，累积到下次
+        if (refill > 0 && lastRefillMillis.compareAndSet(last, now)) {
+            addTokens(refill);
+        }
+    }
+
+    private void addTokens(long delta) {
+        for (; ; ) {
+            long current = tokens.get();
+            if (current >= MAX_TOKENS || tokens.compareAndSet(current, Math.min(current + delta, MAX_TOKENS))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 因超出预算被拒绝的额外请求数
+     */
+    public long getRejectCount() {
+        return rejectCount.sum();
+    }
+
+    public int getPercent() {
+        return percent;
+    }
+}
@@ -3,15 +3,21 @@ package com.hex.srpc.core.invoke;
 import com.hex.common.net.HostAndPort;
 import com.hex.srpc.core.node.NodeManager;
 import com.hex.srpc.core.protocol.RpcResponse;
+import io.netty.util.Timeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @author: hs
+ * <p>
+ * 请求的响应结果，基于CompletableFuture
+ * 收到响应或超时后完成，同步调用在future上限时等待，异步调用可直接组合future
  */
 public class ResponseFuture {
     private static final Logger logger = LoggerFactory.getLogger(ResponseFuture.class);
@@ -19,59 +25,148 @@ public class ResponseFuture {
     private Long requestSeq;
     private RpcResponse rpcResponse;
     private RpcCallback rpcCallback;
-    private CountDownLatch latch = new CountDownLatch(1);
-    private int requestTimeout;
+    private final CompletableFuture<RpcResponse> future = new CompletableFuture<>();
+    private volatile Timeout timeoutTask;
+    private long timeoutMillis;
     private HostAndPort remoteAddress;
-    private static ThreadPoolExecutor TASK_EXECUTOR;
+    private volatile boolean selfTimed;
+    private static ExecutorService TASK_EXECUTOR;
 
-    public ResponseFuture(Long requestSeq, int requestTimeout, HostAndPort remoteAddress, RpcCallback rpcCallback) {
+    /**
+     * @param timeoutMillis 请求超时时间(毫秒)
+     */
+    public ResponseFuture(Long requestSeq, long timeoutMillis, HostAndPort remoteAddress, RpcCallback rpcCallback) {
         this.requestSeq = requestSeq;
-        this.requestTimeout = requestTimeout;
+        this.timeoutMillis = timeoutMillis;
         this.rpcCallback = rpcCallback;
         this.remoteAddress = remoteAddress;
     }
 
+    private ResponseFuture(RpcResponse rpcResponse, HostAndPort remoteAddress) {
+        this.requestSeq = rpcResponse.getSeq();
+        this.remoteAddress = remoteAddress;
+        this.future.complete(rpcResponse);
+    }
+
+    /**
+     * 已完成的响应结果，用于请求未发出时直接返回
+     */
+    public static ResponseFuture completed(RpcResponse rpcResponse) {
+        return new ResponseFuture(rpcResponse, null);
+    }
+
+    /**
+     * 已完成的响应结果，用于已选定节点但未能发出时返回，重试时排除该节点
+     */
+    public static ResponseFuture completed(RpcResponse rpcResponse, HostAndPort remoteAddress) {
+        return new ResponseFuture(rpcResponse, remoteAddress);
+    }
+
     /**
      * 等待服务端响应结果并返回
      */
     public RpcResponse waitForResponse() {
-        boolean await;
         try {
-            await = latch.await(requestTimeout, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
+            if (selfTimed) {
+                // 由自身的定时任务保证超时完成
+                return future.get();
+            }
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeout();
+            return future.join();
+        } catch (InterruptedException | ExecutionException e) {
             logger.error("wait for response error", e);
             return RpcResponse.clientError(requestSeq);
         }
-        if (await && rpcResponse != null) {
-            return rpcResponse;
-        } else {
+    }
+
+    /**
+     * 响应结果，超时后以超时响应完成
+     */
+    public CompletableFuture<RpcResponse> getFuture() {
+        return future;
+    }
+
+    /**
+     * 客户端收到服务端响应后调用
+     */
+    public void receipt() {
+        receipt(this.rpcResponse);
+    }
+
+    /**
+     * 以指定的响应完成，多个响应来源(如对冲请求)时只有先到的一个生效
+     *
+     * @return 是否由本次调用完成
+     */
+    public boolean receipt(RpcResponse response) {
+        cancelTimeout();
+        return complete(response);
+    }
+
+    /**
+     * 响应超时后调用，以超时响应完成并执行回调
+     */
+    void timeout() {
+        if (complete(RpcResponse.responseTimeout(requestSeq))) {
             // 响应超时
-            logger.error("Request timed out! seq: {}, max wait time: {}s", requestSeq, requestTimeout);
+            logger.error("Request timed out! seq: {}, max wait time: {}ms", requestSeq, timeoutMillis);
             // 记录错误次数
-            NodeManager.serverError(remoteAddress);
-            return RpcResponse.responseTimeout(requestSeq);
+            if (remoteAddress != null) {
+                NodeManager.serverError(remoteAddress);
+            }
         }
     }
 
     /**
-     * 客户端收到服务端响应后调用
+     * 不登记到ResponseMapping的结果(如对冲请求的聚合结果)使用，到期后以超时响应完成，
+     * 同步等待时不再由调用方自行超时
      */
-    public void receipt() {
-        if (latch != null) {
-            latch.countDown();
+    public void scheduleTimeout() {
+        selfTimed = true;
+        setTimeout(ResponseMapping.newTimeout(timeout -> timeout(), timeoutMillis));
+    }
+
+    void cancelTimeout() {
+        Timeout timeout = this.timeoutTask;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    /**
+     * 完成响应结果并执行回调，响应和超时只有先到的一个生效
+     */
+    private boolean complete(RpcResponse response) {
+        if (!future.complete(response)) {
+            return false;
         }
         // 执行响应回调方法
         if (this.rpcCallback != null) {
             try {
                 if (TASK_EXECUTOR != null) {
-                    TASK_EXECUTOR.execute(() -> rpcCallback.callback(this.rpcResponse));
+                    TASK_EXECUTOR.execute(() -> rpcCallback.callback(response));
                 } else {
-                    rpcCallback.callback(this.rpcResponse);
+                    rpcCallback.callback(response);
                 }
             } catch (Exception e) {
                 logger.error("response callback processing failed!,requestSeq:{}", this.requestSeq, e);
             }
         }
+        return true;
+    }
+
+    void setTimeout(Timeout timeoutTask) {
+        this.timeoutTask = timeoutTask;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public HostAndPort getRemoteAddress() {
+        return remoteAddress;
     }
 
     public void setRpcResponse(RpcResponse rpcResponse) {
@@ -86,7 +181,7 @@ public class ResponseFuture {
         this.requestSeq = requestSeq;
     }
 
-    public static void setTaskExecutor(ThreadPoolExecutor taskExecutor) {
+    public static void setTaskExecutor(ExecutorService taskExecutor) {
         TASK_EXECUTOR = taskExecutor;
     }
 }
@@ -1,33 +1,72 @@
 package com.hex.srpc.core.invoke;
 
 
-import com.hex.common.cache.IExpireCache;
-import com.hex.common.cache.ScheduleEvictExpireCache;
+import com.hex.common.thread.SRpcThreadFactory;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 /**
  * @author: hs
+ * <p>
+ * 等待响应的请求表
+ * 使用ConcurrentHashMap按请求seq存取，读写无全局锁；超时由所有客户端共享的时间轮触发，
+ * 超时后移除请求并以超时响应完成，异步回调同样会收到超时响应
  */
 public class ResponseMapping {
 
-    private IExpireCache<Long, ResponseFuture> expireCache;
+    /**
+     * 时间轮精度(毫秒)
+     */
+    private static final long TICK_DURATION = 10;
 
-    public ResponseMapping(int expiredTime) {
-        expireCache = new ScheduleEvictExpireCache<>(expiredTime, TimeUnit.SECONDS);
-    }
+    /**
+     * 时间轮槽数
+     */
+    private static final int TICKS_PER_WHEEL = 1024;
+
+    private static final Timer TIMER = new HashedWheelTimer(new SRpcThreadFactory("srpc-response-timeout"),
+            TICK_DURATION, TimeUnit.MILLISECONDS, TICKS_PER_WHEEL);
+
+    private final ConcurrentMap<Long, ResponseFuture> pendingMap = new ConcurrentHashMap<>(256);
 
     public void putResponseFuture(Long requestSeq, ResponseFuture responseFuture) {
-        expireCache.put(requestSeq, responseFuture);
+        pendingMap.put(requestSeq, responseFuture);
+        responseFuture.setTimeout(TIMER.newTimeout(timeout -> {
+            ResponseFuture expired = pendingMap.remove(requestSeq);
+            if (expired != null) {
+                expired.timeout();
+            }
+        }, responseFuture.getTimeoutMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * 使用共享时间轮执行延迟任务，任务在时间轮线程中执行，不能阻塞
+     */
+    public static Timeout newTimeout(TimerTask task, long delayMillis) {
+        return TIMER.newTimeout(task, delayMillis, TimeUnit.MILLISECONDS);
     }
 
     public ResponseFuture getResponseFuture(Long requestId) {
-        ResponseFuture responseFuture = expireCache.get(requestId);
-        expireCache.invalidate(requestId);
-        return responseFuture;
+        return pendingMap.remove(requestId);
     }
 
     public void invalidate(Long requestId) {
-        expireCache.invalidate(requestId);
+        ResponseFuture responseFuture = pendingMap.remove(requestId);
+        if (responseFuture != null) {
+            responseFuture.cancelTimeout();
+        }
+    }
+
+    /**
+     * 等待响应的请求数量
+     */
+    public int size() {
+        return pendingMap.size();
     }
 }
@@ -0,0 +1,289 @@
+package com.hex.srpc.core.invoke;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.hex.common.constant.ResponseStatus;
+import com.hex.srpc.core.protocol.CommandBody;
+import com.hex.srpc.core.protocol.RpcResponse;
+import com.hex.srpc.core.rpc.serialize.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * @author: hs
+ * <p>
+ * 客户端调用结果缓存，用于读多写少的幂等mapping
+ * 每个mapping及缓存参数(ttl、refresh)一个缓存，key为调用目标(服务名称或节点集合)及序列化后的请求参数，只缓存成功的响应；
+ * 响应内容序列化后缓存，每次命中时重新反序列化，调用方修改返回的结果不影响缓存及其他调用方；
+ * 超过ttl后过期，超过refresh后首次访问仍返回旧值，同时在后台重新请求刷新(stale-while-revalidate)；
+ * 缓存容量有上限，超出后按最近最少使用淘汰
+ */
+public class ResultCache {
+    private static final Logger logger = LoggerFactory.getLogger(ResultCache.class);
+
+    private final ConcurrentMap<CacheSpec, LoadingCache<CacheKey, CachedResponse>> caches = new ConcurrentHashMap<>();
+    private final Serializer serializer;
+    private final long maxSize;
+    private final Executor refreshExecutor;
+
+    /**
+     * @param serializer      请求参数及响应内容的序列化方式
+     * @param maxSize         每个mapping最多缓存的结果数
+     * @param refreshExecutor 后台刷新使用的线程池
+     */
+    public ResultCache(Serializer serializer, long maxSize, Executor refreshExecutor) {
+        this.serializer = serializer;
+        this.maxSize = maxSize;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    /**
+     * 获取缓存的结果，未命中时调用loader请求并缓存成功的响应
+     * 同一mapping使用不同的ttl或refresh时分开缓存
+     *
+     * @param mapping       请求mapping
+     * @param target        调用目标，相同mapping调用不同服务或节点时结果分开缓存
+     * @param args          请求参数
+     * @param ttlMillis     缓存过期时间(毫秒)
+     * @param refreshMillis 后台刷新时间(毫秒)，0为不刷新
+     * @param loader        实际发送请求
+     */
+    public RpcResponse get(String mapping, String target, Object[] args, long ttlMillis, long refreshMillis,
+                           Supplier<RpcResponse> loader) {
+        byte[] serialized;
+        try {
+            // 与请求编码一致包装为CommandBody，protostuff不支持直接序列化Object[]
+            serialized = serializer.serialize(new CommandBody().setArgs(args));
+        } catch (Exception e) {
+            logger.warn("The args of mapping {} can not be serialized, skip the result cache", mapping, e);
+            return loader.get();
+        }
+        LoadingCache<CacheKey, CachedResponse> cache = caches.computeIfAbsent(
+                new CacheSpec(mapping, ttlMillis, refreshMillis), spec -> buildCache(ttlMillis, refreshMillis));
+        try {
+            return cache.get(new CacheKey(target, serialized, loader)).toResponse(serializer);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof UncacheableResponseException) {
+                return ((UncacheableResponseException) e.getCause()).response;
+            }
+            throw new IllegalStateException("result cache load failed, mapping: " + mapping, e.getCause());
+        }
+    }
+
+    /**
+     * 清除mapping的全部缓存结果
+     */
+    public void invalidate(String mapping) {
+        caches.forEach((spec, cache) -> {
+            if (spec.mapping.equals(mapping)) {
+                cache.invalidateAll();
+            }
+        });
+    }
+
+    /**
+     * 命中次数
+     */
+    public long getHitCount() {
+        return stats().hitCount();
+    }
+
+    /**
+     * 未命中次数
+     */
+    public long getMissCount() {
+        return stats().missCount();
+    }
+
+    /**
+     * 所有mapping的缓存统计
+     */
+    public CacheStats stats() {
+        CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0);
+        for (LoadingCache<CacheKey, CachedResponse> cache : caches.values()) {
+            stats = stats.plus(cache.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * 单个mapping的缓存统计
+     */
+    public CacheStats stats(String mapping) {
+        CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0);
+        for (Map.Entry<CacheSpec, LoadingCache<CacheKey, CachedResponse>> entry : caches.entrySet()) {
+            if (entry.getKey().mapping.equals(mapping)) {
+                stats = stats.plus(entry.getValue().stats());
+            }
+        }
+        return stats;
+    }
+
+    private LoadingCache<CacheKey, CachedResponse> buildCache(long ttlMillis, long refreshMillis) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                .recordStats();
+        if (refreshMillis > 0 && refreshMillis < ttlMillis) {
+            builder.refreshAfterWrite(refreshMillis, TimeUnit.MILLISECONDS);
+        }
+        return builder.build(new CacheLoader<CacheKey, CachedResponse>() {
+            @Override
+            public CachedResponse load(CacheKey key) {
+                RpcResponse response = key.loader.get();
+                CachedResponse cached = toCached(response);
+                if (cached == null) {
+                    // 失败或无法序列化的响应不缓存
+                    throw new UncacheableResponseException(response);
+                }
+                return cached;
+            }
+
+            @Override
+            public ListenableFuture<CachedResponse> reload(CacheKey key, CachedResponse oldValue) {
+                // 后台刷新，刷新失败时保留旧值直到过期
+                ListenableFutureTask<CachedResponse> task = ListenableFutureTask.create(() -> {
+                    CachedResponse cached = toCached(key.loader.get());
+                    return cached != null ? cached : oldValue;
+                });
+                refreshExecutor.execute(task);
+                return task;
+            }
+        });
+    }
+
+    /**
+     * 成功的响应转换为缓存内容，失败或响应内容无法序列化时返回null
+     */
+    private CachedResponse toCached(RpcResponse response) {
+        if (!ResponseStatus.SUCCESS_CODE.equals(response.getStatus())) {
+            return null;
+        }
+        try {
+            byte[] body = response.getBody() == null ? null
+                    : serializer.serialize(new CommandBody().setResult(response.getBody()));
+            return new CachedResponse(response, body);
+        } catch (Exception e) {
+            logger.warn("The result of mapping {} can not be serialized, skip the result cache",
+                    response.getMapping(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 缓存参数，同一mapping的ttl或refresh不同时使用不同的缓存
+     */
+    private static final class CacheSpec {
+        private final String mapping;
+        private final long ttlMillis;
+        private final long refreshMillis;
+
+        CacheSpec(String mapping, long ttlMillis, long refreshMillis) {
+            this.mapping = mapping;
+            this.ttlMillis = ttlMillis;
+            this.refreshMillis = refreshMillis;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheSpec)) {
+                return false;
+            }
+            CacheSpec that = (CacheSpec) o;
+            return ttlMillis == that.ttlMillis && refreshMillis == that.refreshMillis && mapping.equals(that.mapping);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mapping, ttlMillis, refreshMillis);
+        }
+    }
+
+    /**
+     * 缓存的响应，响应内容以序列化后的形式保存
+     */
+    private static final class CachedResponse {
+        private final Long seq;
+        private final String header;
+        private final String mapping;
+        private final Long timestamp;
+        private final Integer status;
+        private final byte[] body;
+
+        CachedResponse(RpcResponse response, byte[] body) {
+            this.seq = response.getSeq();
+            this.header = response.getHeader();
+            this.mapping = response.getMapping();
+            this.timestamp = response.getTimestamp();
+            this.status = response.getStatus();
+            this.body = body;
+        }
+
+        /**
+         * 每次命中返回新的响应及响应内容
+         */
+        RpcResponse toResponse(Serializer serializer) {
+            Object result = body == null ? null : serializer.deserialize(body, CommandBody.class).getResult();
+            return new RpcResponse(seq, header, mapping, timestamp, status, result);
+        }
+    }
+
+    /**
+     * 以调用目标及序列化后的参数内容作为key，loader只用于加载及刷新，不参与比较
+     */
+    private static final class CacheKey {
+        private final String target;
+        private final ByteBuffer args;
+        private final Supplier<RpcResponse> loader;
+
+        CacheKey(String target, byte[] args, Supplier<RpcResponse> loader) {
+            this.target = target;
+            this.args = ByteBuffer.wrap(args);
+            this.loader = loader;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey that = (CacheKey) o;
+            return target.equals(that.target) && args.equals(that.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * target.hashCode() + args.hashCode();
+        }
+    }
+
+    private static final class UncacheableResponseException extends RuntimeException {
+        private final transient RpcResponse response;
+
+        UncacheableResponseException(RpcResponse response) {
+            super(null, null, false, false);
+            this.response = response;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.hex.srpc.core.invoke;
+
+/**
+ * @author: hs
+ * <p>
+ * 服务端处理请求时的调用上下文
+ * 路由方法中可获取当前请求的截止时间及剩余时间，在路由方法中发起的rpc调用会继承该截止时间
+ */
+public final class RpcContext {
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private RpcContext() {
+    }
+
+    /**
+     * 当前请求的截止时间(毫秒时间戳)，为空表示不限制
+     */
+    public static Long getDeadline() {
+        return DEADLINE.get();
+    }
+
+    /**
+     * 当前请求的剩余时间(毫秒)，不限制时为Long.MAX_VALUE
+     */
+    public static long getRemainingMillis() {
+        Long deadline = DEADLINE.get();
+        if (deadline == null) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(deadline - System.currentTimeMillis(), 0L);
+    }
+
+    /**
+     * 截止时间是否已过
+     */
+    public static boolean isExpired(Long deadline) {
+        return deadline != null && System.currentTimeMillis() >= deadline;
+    }
+
+    public static void setDeadline(Long deadline) {
+        DEADLINE.set(deadline);
+    }
+
+    public static void clear() {
+        DEADLINE.remove();
+    }
+}
@@ -0,0 +1,113 @@
+package com.hex.srpc.core.invoke;
+
+import com.hex.srpc.core.protocol.CommandBody;
+import com.hex.srpc.core.protocol.RpcResponse;
+import com.hex.srpc.core.rpc.serialize.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * @author: hs
+ * <p>
+ * 相同请求合并：mapping、调用目标及序列化后的参数都相同的并发调用共用一次请求，请求完成后全部以同一个响应完成
+ * 只合并正在进行中的请求，请求完成后再到达的调用会重新发送
+ */
+public class SingleFlight {
+    private static final Logger logger = LoggerFactory.getLogger(SingleFlight.class);
+
+    private final ConcurrentMap<FlightKey, CompletableFuture<RpcResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Serializer serializer;
+
+    /**
+     * @param serializer 请求参数的序列化方式
+     */
+    public SingleFlight(Serializer serializer) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * 合并执行，已有相同的请求进行中时直接共用其结果，否则调用call发送请求
+     * 返回的future各调用方独立，对其完成或取消不影响其他调用方
+     *
+     * @param mapping 请求mapping
+     * @param target  调用目标(服务名称或节点集合)，目标不同的请求不合并
+     * @param args    请求参数
+     * @param call    实际发送请求，只在没有相同请求进行中时调用
+     */
+    public CompletableFuture<RpcResponse> execute(String mapping, String target, Object[] args,
+                                                  Supplier<CompletableFuture<RpcResponse>> call) {
+        FlightKey key;
+        try {
+            // 与请求编码一致包装为CommandBody，protostuff不支持直接序列化Object[]
+            key = new FlightKey(mapping, target, serializer.serialize(new CommandBody().setArgs(args)));
+        } catch (Exception e) {
+            logger.warn("The args of mapping {} can not be serialized, skip the request coalescing", mapping, e);
+            return call.get();
+        }
+        CompletableFuture<RpcResponse> flight = inFlight.get(key);
+        if (flight == null) {
+            CompletableFuture<RpcResponse> leader = new CompletableFuture<>();
+            flight = inFlight.putIfAbsent(key, leader);
+            if (flight == null) {
+                flight = leader;
+                try {
+                    call.get().whenComplete((response, throwable) -> {
+                        // 先移除再完成，完成后到达的调用不会再共用旧的结果
+                        inFlight.remove(key, leader);
+                        if (throwable != null) {
+                            leader.completeExceptionally(throwable);
+                        } else {
+                            leader.complete(response);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    inFlight.remove(key, leader);
+                    leader.completeExceptionally(e);
+                }
+            }
+        }
+        return flight.thenApply(response -> response);
+    }
+
+    /**
+     * 进行中的合并请求数
+     */
+    public int size() {
+        return inFlight.size();
+    }
+
+    private static final class FlightKey {
+        private final String mapping;
+        private final String target;
+        private final ByteBuffer args;
+
+        FlightKey(String mapping, String target, byte[] args) {
+            this.mapping = mapping;
+            this.target = target;
+            this.args = ByteBuffer.wrap(args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FlightKey)) {
+                return false;
+            }
+            FlightKey that = (FlightKey) o;
+            return mapping.equals(that.mapping) && target.equals(that.target) && args.equals(that.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * mapping.hashCode() + target.hashCode()) + args.hashCode();
+        }
+    }
+}
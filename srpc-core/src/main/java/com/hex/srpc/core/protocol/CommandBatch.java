@@ -0,0 +1,35 @@
+package com.hex.srpc.core.protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author: hs
+ * <p>
+ * 多个指令的批次：解码时为一帧中解析出的多个指令，由连接管理handler拆分后逐个处理；
+ * 发送时为批量调用的多个请求，由编码器编码后一次写出
+ */
+public class CommandBatch {
+
+    private final List<Command> commands;
+
+    public CommandBatch(int size) {
+        this.commands = new ArrayList<>(size);
+    }
+
+    public CommandBatch add(Command command) {
+        commands.add(command);
+        return this;
+    }
+
+    public List<Command> getCommands() {
+        return commands;
+    }
+
+    @Override
+    public String toString() {
+        return "CommandBatch{" +
+                "size=" + commands.size() +
+                '}';
+    }
+}
@@ -0,0 +1,45 @@
+package com.hex.srpc.core.protocol;
+
+import java.io.Serializable;
+
+/**
+ * @author: hs
+ * <p>
+ * v2协议消息体
+ * seq、mapping等头部信息在帧头中二进制编码，消息体只包含请求参数或响应内容
+ */
+public class CommandBody implements Serializable {
+
+    private static final long serialVersionUID = 3021658712354609437L;
+
+    /**
+     * 请求参数
+     */
+    private Object[] args;
+
+    /**
+     * 响应内容
+     */
+    private Object result;
+
+    public CommandBody() {
+    }
+
+    public Object[] getArgs() {
+        return args;
+    }
+
+    public CommandBody setArgs(Object[] args) {
+        this.args = args;
+        return this;
+    }
+
+    public Object getResult() {
+        return result;
+    }
+
+    public CommandBody setResult(Object result) {
+        this.result = result;
+        return this;
+    }
+}
@@ -0,0 +1,317 @@
+package com.hex.srpc.core.protocol;
+
+import com.hex.common.constant.CompressType;
+import com.hex.common.constant.RpcConstant;
+import com.hex.common.constant.SerializeType;
+import com.hex.common.spi.ExtensionLoader;
+import com.hex.srpc.core.rpc.compress.Compress;
+import com.hex.srpc.core.rpc.serialize.Serializer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author: hs
+ * <p>
+ * 连接握手信息
+ * 客户端在连接建立后发送本端支持的协议版本、序列化/压缩算法、最大帧长度及特性，
+ * 服务端取双方都支持的最优组合返回，双方之后按协商结果编码。
+ * 握手以mapping为{@link #MAPPING}的普通请求发送，未升级的服务端会返回错误响应，此时按v1及本端配置通信
+ */
+public class Handshake {
+
+    /**
+     * 握手请求的mapping
+     */
+    public static final String MAPPING = "$srpc.handshake";
+
+    /**
+     * 特性：v2二进制帧头
+     */
+    public static final int FEATURE_BINARY_HEADER = 1;
+
+    /**
+     * 特性：多个指令合并为一帧
+     */
+    public static final int FEATURE_BATCH = 1 << 1;
+
+    /**
+     * 特性：流式响应
+     */
+    public static final int FEATURE_STREAMING = 1 << 2;
+
+    /**
+     * 本端支持的特性
+     */
+    public static final int LOCAL_FEATURES = FEATURE_BINARY_HEADER | FEATURE_BATCH;
+
+    /**
+     * 序列化算法优先级，靠前的性能更好
+     */
+    private static final SerializeType[] SERIALIZE_PRIORITY = {
+            SerializeType.PROTOSTUFF, SerializeType.KRYO, SerializeType.JSON, SerializeType.JDK
+    };
+
+    /**
+     * 压缩算法优先级，靠前的速度更快
+     */
+    private static final CompressType[] COMPRESS_PRIORITY = {
+            CompressType.LZ4, CompressType.SNAPPY, CompressType.LZO, CompressType.DEFLATER,
+            CompressType.GZIP, CompressType.BZIP2
+    };
+
+    private byte version;
+    private int maxFrameLength;
+    private int features;
+    private SerializeType serializeType;
+    private CompressType compressType;
+    private List<SerializeType> serializeTypes;
+    private List<CompressType> compressTypes;
+
+    public Handshake() {
+    }
+
+    /**
+     * 本端握手信息
+     *
+     * @param maxVersion    本端支持的最高协议版本
+     * @param serializeType 本端首选序列化算法
+     * @param compressType  本端首选压缩算法
+     */
+    public static Handshake local(byte maxVersion, SerializeType serializeType, CompressType compressType) {
+        Handshake handshake = new Handshake();
+        handshake.version = (byte) Math.min(maxVersion, RpcConstant.VERSION);
+        handshake.maxFrameLength = RpcConstant.MAX_FRAME_LENGTH;
+        handshake.features = handshake.version >= RpcConstant.VERSION ? LOCAL_FEATURES
+                : LOCAL_FEATURES & ~FEATURE_BINARY_HEADER;
+        handshake.serializeType = serializeType;
+        handshake.compressType = compressType;
+        handshake.serializeTypes = supportedSerializeTypes();
+        handshake.compressTypes = supportedCompressTypes();
+        return handshake;
+    }
+
+    /**
+     * 未完成握手(对端不支持)时使用的连接信息
+     */
+    public static Handshake legacy(SerializeType serializeType, CompressType compressType) {
+        Handshake handshake = new Handshake();
+        handshake.version = RpcConstant.VERSION_V1;
+        handshake.maxFrameLength = RpcConstant.MAX_FRAME_LENGTH;
+        handshake.features = 0;
+        handshake.serializeType = serializeType;
+        handshake.compressType = compressType;
+        return handshake;
+    }
+
+    /**
+     * 服务端根据客户端握手信息协商
+     * 优先使用客户端首选的算法，其次使用服务端首选，都不支持时按优先级选择双方都支持的算法
+     *
+     * @param local  服务端握手信息
+     * @param remote 客户端握手信息
+     */
+    public static Handshake negotiate(Handshake local, Handshake remote) {
+        Handshake result = new Handshake();
+        result.version = (byte) Math.min(local.version, remote.version);
+        result.maxFrameLength = Math.min(local.maxFrameLength, remote.maxFrameLength);
+        result.features = local.features & remote.features;
+        if (result.version < RpcConstant.VERSION) {
+            result.features &= ~FEATURE_BINARY_HEADER;
+        }
+
+        result.serializeType = chooseSerializeType(local, remote);
+        result.compressType = chooseCompressType(local, remote);
+        return result;
+    }
+
+    private static SerializeType chooseSerializeType(Handshake local, Handshake remote) {
+        if (local.serializeTypes.contains(remote.serializeType)) {
+            return remote.serializeType;
+        }
+        if (remote.serializeTypes.contains(local.serializeType)) {
+            return local.serializeType;
+        }
+        for (SerializeType type : SERIALIZE_PRIORITY) {
+            if (local.serializeTypes.contains(type) && remote.serializeTypes.contains(type)) {
+                return type;
+            }
+        }
+        // 没有共同支持的序列化算法时沿用客户端配置，与未握手时的行为一致
+        return remote.serializeType;
+    }
+
+    private static CompressType chooseCompressType(Handshake local, Handshake remote) {
+        if (local.compressTypes.contains(remote.compressType)) {
+            return remote.compressType;
+        }
+        if (remote.compressTypes.contains(local.compressType)) {
+            return local.compressType;
+        }
+        for (CompressType type : COMPRESS_PRIORITY) {
+            if (local.compressTypes.contains(type) && remote.compressTypes.contains(type)) {
+                return type;
+            }
+        }
+        return CompressType.NONE;
+    }
+
+    private static List<SerializeType> supportedSerializeTypes() {
+        ExtensionLoader<Serializer> loader = ExtensionLoader.getExtensionLoader(Serializer.class);
+        List<SerializeType> types = new ArrayList<>();
+        for (SerializeType type : SerializeType.values()) {
+            if (isSupported(loader, type.getName())) {
+                types.add(type);
+            }
+        }
+        return types;
+    }
+
+    private static List<CompressType> supportedCompressTypes() {
+        ExtensionLoader<Compress> loader = ExtensionLoader.getExtensionLoader(Compress.class);
+        List<CompressType> types = new ArrayList<>();
+        for (CompressType type : CompressType.values()) {
+            if (isSupported(loader, type.getName())) {
+                types.add(type);
+            }
+        }
+        return types;
+    }
+
+    private static boolean isSupported(ExtensionLoader<?> loader, String name) {
+        try {
+            return loader.getExtension(name) != null;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 转为请求参数/响应内容，只使用基础类型以兼容所有序列化算法
+     */
+    public Object[] toArgs() {
+        return new Object[]{
+                (int) version, maxFrameLength, features, (int) serializeType.getCode(), (int) compressType.getCode(),
+                serializeTypes == null ? "" : joinSerializeTypes(serializeTypes),
+                compressTypes == null ? "" : joinCompressTypes(compressTypes)
+        };
+    }
+
+    /**
+     * 从请求参数/响应内容解析，json序列化时响应内容为List
+     */
+    public static Handshake fromArgs(Object value) {
+        List<?> args;
+        if (value instanceof Object[]) {
+            args = Arrays.asList((Object[]) value);
+        } else if (value instanceof List) {
+            args = (List<?>) value;
+        } else {
+            throw new IllegalArgumentException("illegal handshake: " + value);
+        }
+        if (args.size() < 5) {
+            throw new IllegalArgumentException("illegal handshake: " + args);
+        }
+        Handshake handshake = new Handshake();
+        handshake.version = ((Number) args.get(0)).byteValue();
+        handshake.maxFrameLength = ((Number) args.get(1)).intValue();
+        handshake.features = ((Number) args.get(2)).intValue();
+        handshake.serializeType = serializeType(((Number) args.get(3)).intValue());
+        handshake.compressType = compressType(((Number) args.get(4)).intValue());
+        if (handshake.serializeType == null || handshake.compressType == null) {
+            throw new IllegalArgumentException("illegal handshake: " + args);
+        }
+        handshake.serializeTypes = new ArrayList<>();
+        handshake.compressTypes = new ArrayList<>();
+        if (args.size() > 6) {
+            for (String code : splitCodes(args.get(5))) {
+                SerializeType type = serializeType(Integer.parseInt(code));
+                if (type != null) {
+                    handshake.serializeTypes.add(type);
+                }
+            }
+            for (String code : splitCodes(args.get(6))) {
+                CompressType type = compressType(Integer.parseInt(code));
+                if (type != null) {
+                    handshake.compressTypes.add(type);
+                }
+            }
+        }
+        return handshake;
+    }
+
+    private static String joinSerializeTypes(List<SerializeType> types) {
+        StringBuilder builder = new StringBuilder();
+        for (SerializeType type : types) {
+            builder.append(builder.length() == 0 ? "" : ",").append(type.getCode());
+        }
+        return builder.toString();
+    }
+
+    private static String joinCompressTypes(List<CompressType> types) {
+        StringBuilder builder = new StringBuilder();
+        for (CompressType type : types) {
+            builder.append(builder.length() == 0 ? "" : ",").append(type.getCode());
+        }
+        return builder.toString();
+    }
+
+    private static String[] splitCodes(Object codes) {
+        String value = codes == null ? "" : codes.toString().trim();
+        return value.isEmpty() ? new String[0] : value.split(",");
+    }
+
+    private static SerializeType serializeType(int code) {
+        for (SerializeType type : SerializeType.values()) {
+            if (type.getCode() == code) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static CompressType compressType(int code) {
+        for (CompressType type : CompressType.values()) {
+            if (type.getCode() == code) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    public boolean hasFeature(int feature) {
+        return (features & feature) == feature;
+    }
+
+    public byte getVersion() {
+        return version;
+    }
+
+    public int getMaxFrameLength() {
+        return maxFrameLength;
+    }
+
+    public int getFeatures() {
+        return features;
+    }
+
+    public SerializeType getSerializeType() {
+        return serializeType;
+    }
+
+    public CompressType getCompressType() {
+        return compressType;
+    }
+
+    @Override
+    public String toString() {
+        return "Handshake{" +
+                "version=" + version +
+                ", maxFrameLength=" + maxFrameLength +
+                ", features=" + features +
+                ", serializeType=" + serializeType +
+                ", compressType=" + compressType +
+                '}';
+    }
+}
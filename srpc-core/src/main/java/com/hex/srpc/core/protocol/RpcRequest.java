@@ -13,6 +13,12 @@ public class RpcRequest extends Command {
      */
     private Object[] args;
 
+    /**
+     * 请求截止时间(本地毫秒时间戳)，为空表示不限制
+     * 仅在v2帧头中以剩余时间传输，不参与序列化
+     */
+    private transient Long deadline;
+
     public RpcRequest() {
         super.setRequest(true);
     }
@@ -26,10 +32,20 @@ public class RpcRequest extends Command {
         return this;
     }
 
+    public Long getDeadline() {
+        return deadline;
+    }
+
+    public RpcRequest setDeadline(Long deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
     @Override
     public String toString() {
         return "RpcRequest{" +
                 "args=" + Arrays.toString(args) +
+                ", deadline=" + deadline +
                 "} " + super.toString();
     }
 }
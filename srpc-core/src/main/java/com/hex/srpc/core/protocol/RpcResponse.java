@@ -72,6 +72,13 @@ public class RpcResponse extends Command {
         return new RpcResponse(requestSeq, ResponseStatus.RESPONSE_TIMEOUT);
     }
 
+    /**
+     * 请求已过期
+     */
+    public static RpcResponse requestExpired(Long requestSeq) {
+        return new RpcResponse(requestSeq, ResponseStatus.REQUEST_EXPIRED);
+    }
+
     /**
      * 重复请求
      */
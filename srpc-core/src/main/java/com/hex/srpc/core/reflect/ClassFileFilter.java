@@ -0,0 +1,98 @@
+package com.hex.srpc.core.reflect;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * @author: hs
+ * <p>
+ * 类文件预筛选，只读取类文件的常量池，判断是否引用了指定的注解，不加载类
+ * 常量池中有注解的描述符不代表类本身标注了该注解(也可能是方法或字段上)，结果仍需加载类后确认，但没有引用的类可直接跳过
+ */
+public class ClassFileFilter {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private ClassFileFilter() {
+    }
+
+    /**
+     * 类文件是否可能标注了指定注解
+     *
+     * @param in                   类文件内容，由调用方关闭
+     * @param annotationDescriptor 注解的描述符，如Lcom/hex/common/annotation/SRpcRoute;
+     */
+    public static boolean mayHaveAnnotation(InputStream in, String annotationDescriptor) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) {
+            return false;
+        }
+        // minor_version, major_version
+        skipFully(data, 4);
+        int count = data.readUnsignedShort();
+        for (int i = 1; i < count; i++) {
+            int tag = data.readUnsignedByte();
+            switch (tag) {
+                // Utf8
+                case 1:
+                    if (annotationDescriptor.equals(data.readUTF())) {
+                        return true;
+                    }
+                    break;
+                // Integer, Float, Fieldref, Methodref, InterfaceMethodref, NameAndType, Dynamic, InvokeDynamic
+                case 3:
+                case 4:
+                case 9:
+                case 10:
+                case 11:
+                case 12:
+                case 17:
+                case 18:
+                    skipFully(data, 4);
+                    break;
+                // Long, Double占两个常量池位置
+                case 5:
+                case 6:
+                    skipFully(data, 8);
+                    i++;
+                    break;
+                // Class, String, MethodType, Module, Package
+                case 7:
+                case 8:
+                case 16:
+                case 19:
+                case 20:
+                    skipFully(data, 2);
+                    break;
+                // MethodHandle
+                case 15:
+                    skipFully(data, 3);
+                    break;
+                default:
+                    // 未知的常量类型，交由加载类后判断
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 注解类的描述符
+     */
+    public static String descriptor(Class<?> annotationType) {
+        return "L" + annotationType.getName().replace('.', '/') + ";";
+    }
+
+    private static void skipFully(DataInputStream data, int n) throws IOException {
+        while (n > 0) {
+            int skipped = data.skipBytes(n);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            n -= skipped;
+        }
+    }
+}
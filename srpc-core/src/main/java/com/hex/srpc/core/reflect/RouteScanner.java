@@ -3,25 +3,48 @@ package com.hex.srpc.core.reflect;
 import com.hex.common.annotation.SRpcRoute;
 import com.hex.common.annotation.SRpcScan;
 import com.hex.common.exception.RpcException;
+import com.hex.common.index.SRpcIndex;
 import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.UnsupportedEncodingException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
 import java.net.URL;
-import java.net.URLDecoder;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author: hs
  * 路由扫描器
+ * 类路径上有编译期索引时按索引加载；否则并行扫描各包所在的目录及jar包，先读取类文件常量池筛选，只加载可能标注@SRpcRoute的类
  */
 public class RouteScanner {
     private static final Logger logger = LoggerFactory.getLogger(RouteScanner.class);
 
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String FILE_PROTOCOL = "file";
+    private static final String ROUTE_DESCRIPTOR = ClassFileFilter.descriptor(SRpcRoute.class);
+
     private Class<?> primarySources;
 
     private Set<String> basePackages = new HashSet<>();
@@ -39,6 +62,13 @@ public class RouteScanner {
         return this;
     }
 
+    public RouteScanner setClassLoader(ClassLoader classLoader) {
+        if (classLoader != null) {
+            this.classLoader = classLoader;
+        }
+        return this;
+    }
+
     /**
      * 扫描并注册所有路由
      */
@@ -59,57 +89,135 @@ public class RouteScanner {
                 return;
             }
         }
-        for (String basePackage : basePackages) {
-            basePackage = basePackage.replace(".", "/");
-            URL resource = classLoader.getResource(basePackage);
-            if (resource == null) {
-                logger.warn("this package {} dose not exist", basePackage);
-                continue;
-            }
-            File[] files = new File[0];
+        // 有索引的类路径根直接使用索引中的类，其余位置并行查找候选类，候选类排序后再依次加载注册
+        SRpcIndex index = SRpcIndex.load(SRpcIndex.ROUTE_INDEX_LOCATION, classLoader);
+        Set<String> candidates = new HashSet<>(index.getClassNames(basePackages));
+        if (!index.isEmpty()) {
+            logger.info("Load [{}] routes from index {}", candidates.size(), SRpcIndex.ROUTE_INDEX_LOCATION);
+        }
+        candidates.addAll(findCandidates(index));
+        for (String className : new TreeSet<>(candidates)) {
+            Class<?> loadClass;
             try {
-                String filePath = URLDecoder.decode(resource.getFile(), "UTF-8");
-                File file = new File(filePath);
-                files = file.listFiles();
-                if (files == null) {
-                    logger.warn("the package {} does not have any class or package", basePackage);
-                    return;
-                }
-            } catch (Exception e) {
-                logger.error(e.getMessage(), e);
+                loadClass = Class.forName(className, false, classLoader);
+            } catch (ClassNotFoundException | LinkageError e) {
+                logger.error("Failed to load the scanned class {}", className, e);
+                continue;
             }
-            loadAndRegister(files);
+            // 注册router
+            registerRouter(loadClass);
         }
         printScannedResult();
     }
 
+    /**
+     * 在ForkJoinPool中并行扫描所有包，支持目录、jar包及Spring Boot的嵌套jar，只返回常量池中引用了@SRpcRoute的类
+     * 有索引的类路径根跳过扫描
+     */
+    private Set<String> findCandidates(SRpcIndex index) {
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            return pool.submit(() -> basePackages.parallelStream()
+                    .flatMap(this::packageRoots)
+                    .filter(root -> !index.covers(root.url, root.basePackage.replace(".", "/")))
+                    .flatMap(root -> scanRoot(root).stream())
+                    .collect(Collectors.toSet())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RpcException("Route scanning interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RpcException("Route scanning failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
 
-    private void loadAndRegister(File[] files) {
-        if (files == null) {
-            return;
+    /**
+     * 包在类路径上的所有位置，同一个包可能分布在多个目录或jar包中
+     */
+    private Stream<PackageRoot> packageRoots(String basePackage) {
+        String path = basePackage.replace(".", "/");
+        List<PackageRoot> roots = new ArrayList<>();
+        try {
+            Enumeration<URL> resources = classLoader.getResources(path);
+            while (resources.hasMoreElements()) {
+                roots.add(new PackageRoot(basePackage, resources.nextElement()));
+            }
+        } catch (IOException e) {
+            logger.error("Failed to find the package {}", basePackage, e);
         }
-        for (File file : files) {
-            if (file.isDirectory()) {
-                loadAndRegister(file.listFiles());
-                continue;
+        if (roots.isEmpty()) {
+            logger.warn("this package {} dose not exist", basePackage);
+        }
+        return roots.stream();
+    }
+
+    private Set<String> scanRoot(PackageRoot root) {
+        try {
+            URLConnection connection = root.url.openConnection();
+            if (connection instanceof JarURLConnection) {
+                return scanJar((JarURLConnection) connection);
+            } else if (FILE_PROTOCOL.equals(root.url.getProtocol())) {
+                return scanDirectory(root.basePackage, Paths.get(root.url.toURI()));
+            } else {
+                logger.warn("Unsupported classpath location {}, skip scanning", root.url);
             }
-            if (!file.getName().endsWith(".class")) {
-                continue;
+        } catch (IOException | URISyntaxException e) {
+            logger.error("Failed to scan {}", root.url, e);
+        }
+        return Collections.emptySet();
+    }
+
+    private Set<String> scanDirectory(String basePackage, Path directory) throws IOException {
+        List<Path> classFiles;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            classFiles = paths.filter(path -> isClassFile(path.getFileName().toString())).collect(Collectors.toList());
+        }
+        return classFiles.parallelStream().filter(path -> {
+            try (InputStream in = Files.newInputStream(path)) {
+                return ClassFileFilter.mayHaveAnnotation(in, ROUTE_DESCRIPTOR);
+            } catch (IOException e) {
+                logger.error("Failed to read the class file {}", path, e);
+                return false;
             }
-            String classAbsolutePath = file.getAbsolutePath();
-            classAbsolutePath = classAbsolutePath.replace(File.separator, ".");
-            String className = classAbsolutePath.substring(classAbsolutePath.indexOf("classes.") + "classes.".length(),
-                    classAbsolutePath.lastIndexOf(".class"));
-            Class<?> loadClass;
-            try {
-                loadClass = classLoader.loadClass(className);
-            } catch (ClassNotFoundException e) {
-                logger.error("Failed to load the scanned class", e);
-                continue;
+        }).map(path -> {
+            String relative = directory.relativize(path).toString().replace(File.separatorChar, '.');
+            return basePackage + "." + relative.substring(0, relative.length() - CLASS_SUFFIX.length());
+        }).collect(Collectors.toSet());
+    }
+
+    private Set<String> scanJar(JarURLConnection connection) throws IOException {
+        String entryName = connection.getEntryName();
+        String prefix = entryName == null ? "" : (entryName.endsWith("/") ? entryName : entryName + "/");
+        // 使用缓存的JarFile(Spring Boot的嵌套jar由其类加载器共用)，不能关闭
+        JarFile jarFile = connection.getJarFile();
+        List<JarEntry> classEntries = new ArrayList<>();
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            String name = entry.getName();
+            if (!entry.isDirectory() && name.startsWith(prefix) && isClassFile(name.substring(name.lastIndexOf('/') + 1))) {
+                classEntries.add(entry);
             }
-            // 注册router
-            registerRouter(loadClass);
         }
+        return classEntries.parallelStream().filter(entry -> {
+            try (InputStream in = jarFile.getInputStream(entry)) {
+                return ClassFileFilter.mayHaveAnnotation(in, ROUTE_DESCRIPTOR);
+            } catch (IOException e) {
+                logger.error("Failed to read the class file {} in {}", entry.getName(), jarFile.getName(), e);
+                return false;
+            }
+        }).map(entry -> {
+            String name = entry.getName();
+            return name.substring(0, name.length() - CLASS_SUFFIX.length()).replace('/', '.');
+        }).collect(Collectors.toSet());
+    }
+
+    /**
+     * 跳过package-info、module-info等非类文件
+     */
+    private static boolean isClassFile(String fileName) {
+        return fileName.endsWith(CLASS_SUFFIX) && fileName.indexOf('-') < 0;
     }
 
     private void registerRouter(Class<?> clazz) {
@@ -130,4 +238,14 @@ public class RouteScanner {
             logger.debug("Scanned RouterMapping: {}", mappings);
         }
     }
+
+    private static class PackageRoot {
+        private final String basePackage;
+        private final URL url;
+
+        PackageRoot(String basePackage, URL url) {
+            this.basePackage = basePackage;
+            this.url = url;
+        }
+    }
 }
@@ -1,26 +1,49 @@
 package com.hex.srpc.core.reflect;
 
 import com.google.common.base.Throwables;
+import com.google.common.primitives.Primitives;
 import com.hex.common.exception.RpcException;
 import com.hex.srpc.core.protocol.RpcRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 
 /**
  * @author: hs
+ * <p>
+ * 路由方法调用目标
+ * 注册时为每个路由方法生成(Object, Object[])Object形式的MethodHandle直接调用，免去每次反射调用的访问检查及异常包装；
+ * 参数类型与方法签名不完全一致(如需要基本类型拓宽)或无法生成MethodHandle时，退回反射调用，语义与反射调用一致
  */
 public class RouterTarget {
     private static Logger logger = LoggerFactory.getLogger(RouterTarget.class);
 
+    private static final Object[] EMPTY_ARGS = new Object[0];
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
     private Object router;
     private Method method;
+    private final Class<?>[] parameterTypes;
+    private final boolean[] primitiveParameters;
+    private final MethodHandle invoker;
 
     public RouterTarget(Object router, Method method) {
         this.router = router;
         this.method = method;
+        Class<?>[] types = method == null ? new Class<?>[0] : method.getParameterTypes();
+        this.parameterTypes = new Class<?>[types.length];
+        this.primitiveParameters = new boolean[types.length];
+        for (int i = 0; i < types.length; i++) {
+            this.parameterTypes[i] = Primitives.wrap(types[i]);
+            this.primitiveParameters[i] = types[i].isPrimitive();
+        }
+        this.invoker = method == null ? null : createInvoker(method);
     }
 
     public Object invoke(RpcRequest request) {
@@ -28,12 +51,64 @@ public class RouterTarget {
             throw new RpcException("router instance or method is null");
         }
 
+        Object[] args = request.getArgs();
         Object result = null;
+        if (invoker != null && isExactArgs(args)) {
+            try {
+                result = (Object) invoker.invokeExact(router, args == null ? EMPTY_ARGS : args);
+            } catch (Throwable e) {
+                logger.error(Throwables.getStackTraceAsString(e));
+            }
+            return result;
+        }
         try {
-            result = method.invoke(router, request.getArgs());
+            result = method.invoke(router, args);
         } catch (IllegalAccessException | InvocationTargetException e) {
             logger.error(Throwables.getStackTraceAsString(e));
         }
         return result;
     }
+
+    /**
+     * 生成直接调用路由方法的MethodHandle，参数数组展开为方法参数
+     */
+    private static MethodHandle createInvoker(Method method) {
+        try {
+            method.setAccessible(true);
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            if (method.getReturnType() == void.class) {
+                handle = MethodHandles.filterReturnValue(handle, MethodHandles.constant(Object.class, null));
+            }
+            if (Modifier.isStatic(method.getModifiers())) {
+                // 静态方法忽略router实例
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            return handle.asSpreader(Object[].class, method.getParameterCount()).asType(INVOKER_TYPE);
+        } catch (Exception e) {
+            logger.warn("Failed to create invoker for method {}, fall back to reflection", method, e);
+            return null;
+        }
+    }
+
+    /**
+     * 参数个数及类型与方法签名一致，可直接通过MethodHandle调用
+     * 基本类型参数为null或需要拓宽时不一致，交由反射调用处理
+     */
+    private boolean isExactArgs(Object[] args) {
+        int length = args == null ? 0 : args.length;
+        if (length != parameterTypes.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            Object arg = args[i];
+            if (arg == null) {
+                if (primitiveParameters[i]) {
+                    return false;
+                }
+            } else if (!parameterTypes[i].isInstance(arg)) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -0,0 +1,31 @@
+package com.hex.srpc.core.retry;
+
+import com.hex.common.annotation.SPI;
+import com.hex.srpc.core.protocol.RpcResponse;
+
+/**
+ * @author: hs
+ * <p>
+ * 重试策略，通过SPI扩展，客户端配置retryPolicy指定使用的实现
+ */
+@SPI
+public interface RetryPolicy {
+
+    /**
+     * 响应是否可以重试
+     *
+     * @param response 本次请求的响应
+     * @return 是否重试
+     */
+    boolean isRetryable(RpcResponse response);
+
+    /**
+     * 重试前的等待时间
+     *
+     * @param attempt          第几次重试，从1开始
+     * @param backoffMillis    基础等待时间(毫秒)
+     * @param maxBackoffMillis 最大等待时间(毫秒)
+     * @return 等待时间(毫秒)，0为立即重试
+     */
+    long backoffMillis(int attempt, long backoffMillis, long maxBackoffMillis);
+}
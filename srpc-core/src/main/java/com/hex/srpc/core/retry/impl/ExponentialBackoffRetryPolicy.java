@@ -0,0 +1,34 @@
+package com.hex.srpc.core.retry.impl;
+
+import com.hex.srpc.core.protocol.RpcResponse;
+import com.hex.srpc.core.retry.RetryPolicy;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author: hs
+ * <p>
+ * 指数退避加随机抖动：第n次重试的等待上限为backoff * 2^(n-1)，不超过maxBackoff，
+ * 实际等待时间在上限的一半到上限之间随机，避免大量客户端同时重试
+ * 只重试超时和服务不可用的响应
+ */
+public class ExponentialBackoffRetryPolicy implements RetryPolicy {
+
+    @Override
+    public boolean isRetryable(RpcResponse response) {
+        return response.isRetried();
+    }
+
+    @Override
+    public long backoffMillis(int attempt, long backoffMillis, long maxBackoffMillis) {
+        if (backoffMillis <= 0) {
+            return 0;
+        }
+        long cap = backoffMillis << Math.min(attempt - 1, 30);
+        if (cap <= 0 || cap > maxBackoffMillis) {
+            cap = maxBackoffMillis;
+        }
+        long half = cap / 2;
+        return half + ThreadLocalRandom.current().nextLong(cap - half + 1);
+    }
+}
@@ -3,10 +3,15 @@ package com.hex.srpc.core.rpc;
 import com.hex.common.annotation.Nullable;
 import com.hex.common.net.HostAndPort;
 import com.hex.srpc.core.connection.IConnection;
+import com.hex.srpc.core.invoke.Call;
+import com.hex.srpc.core.invoke.CallOptions;
+import com.hex.srpc.core.invoke.HedgePolicy;
+import com.hex.srpc.core.invoke.ResultCache;
 import com.hex.srpc.core.invoke.RpcCallback;
 import com.hex.srpc.core.protocol.RpcResponse;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author hs
@@ -50,6 +55,20 @@ public interface Client {
      */
     boolean sendHeartBeat(IConnection connection);
 
+    /**
+     * 对冲请求策略，可获取对冲次数、胜出率等统计
+     *
+     * @return 对冲请求策略
+     */
+    HedgePolicy getHedgePolicy();
+
+    /**
+     * 调用结果缓存，可获取命中、未命中次数等统计
+     *
+     * @return 调用结果缓存
+     */
+    ResultCache getResultCache();
+
     /**
      * 同步调用，返回整个响应内容，指定rpc服务端节点
      *
@@ -71,6 +90,17 @@ public interface Client {
      */
     RpcResponse invoke(String mapping, int retryTimes, Object[] args, HostAndPort... nodes);
 
+    /**
+     * 同步调用，返回整个响应内容，指定rpc服务节点及本次调用参数
+     *
+     * @param mapping 服务端对应处理器的mapping标识，服务端@mapping注解的值
+     * @param options 本次调用的超时时间、重试次数等，为空时使用客户端配置
+     * @param args    请求实体列表
+     * @param nodes   指定多个服务端节点
+     * @return 响应内容
+     */
+    RpcResponse invoke(String mapping, @Nullable CallOptions options, Object[] args, HostAndPort... nodes);
+
     /**
      * 同步调用, 并将成功响应的args自动转换为T类型
      *
@@ -94,6 +124,19 @@ public interface Client {
      */
     <T> T invoke(String mapping, Class<T> resultType, int retryTimes, Object[] args, HostAndPort... nodes);
 
+    /**
+     * 同步调用, 并将成功响应的args自动转换为T类型，指定节点及本次调用参数
+     *
+     * @param mapping    服务端对应处理器的mapping标识，服务端@mapping注解的值
+     * @param resultType 响应实体类型
+     * @param options    本次调用的超时时间、重试次数等，为空时使用客户端配置
+     * @param args       请求实体列表
+     * @param nodes      指定多个服务端节点
+     * @return 转换后的args响应内容实体
+     */
+    <T> T invoke(String mapping, Class<T> resultType, @Nullable CallOptions options, Object[] args,
+                 HostAndPort... nodes);
+
     /**
      * 异步调用，带响应回调方法
      *
@@ -104,6 +147,110 @@ public interface Client {
      */
     void invokeAsync(String mapping, @Nullable RpcCallback callback, Object[] args, HostAndPort... nodes);
 
+    /**
+     * 异步调用，带响应回调方法及本次调用参数
+     *
+     * @param mapping  服务端对应处理器的mapping标识，服务端@mapping注解的值
+     * @param callback 响应回调任务
+     * @param options  本次调用的超时时间等，为空时使用客户端配置
+     * @param args     请求实体列表
+     * @param nodes    指定服务端节点[数量为1时不支持节点容错]
+     */
+    void invokeAsync(String mapping, @Nullable RpcCallback callback, @Nullable CallOptions options, Object[] args,
+                     HostAndPort... nodes);
+
+    /**
+     * 异步调用，返回响应内容的future，超时后以超时响应完成
+     * future在IO线程上完成，耗时的后续处理请使用thenXxxAsync并指定线程池
+     *
+     * @param mapping 服务端对应处理器的mapping标识，服务端@mapping注解的值
+     * @param args    请求实体列表
+     * @param nodes   指定服务端节点[数量为1时不支持节点容错]
+     * @return 响应内容的future
+     */
+    CompletableFuture<RpcResponse> invokeFuture(String mapping, Object[] args, HostAndPort... nodes);
+
+    /**
+     * 异步调用，返回响应内容的future，带超时重试机制
+     *
+     * @param mapping    服务端对应处理器的mapping标识，服务端@mapping注解的值
+     * @param args       请求实体列表
+     * @param nodes      指定多个服务端节点
+     * @param retryTimes 失败重试次数
+     * @return 响应内容的future
+     */
+    CompletableFuture<RpcResponse> invokeFuture(String mapping, int retryTimes, Object[] args, HostAndPort... nodes);
+
+    /**
+     * 异步调用，返回响应内容的future，指定本次调用参数
+     *
+     * @param mapping 服务端对应处理器的mapping标识，服务端@mapping注解的值
+     * @param options 本次调用的超时时间、重试次数等，为空时使用客户端配置
+     * @param args    请求实体列表
+     * @param nodes   指定多个服务端节点
+     * @return 响应内容的future
+     */
+    CompletableFuture<RpcResponse> invokeFuture(String mapping, @Nullable CallOptions options, Object[] args,
+                                                HostAndPort... nodes);
+
+    /**
+     * 异步调用, 并将成功响应的args自动转换为T类型，响应失败时结果为null
+     *
+     * @param mapping    服务端对应处理器的mapping标识，服务端@mapping注解的值
+     * @param args       请求实体列表
+     * @param resultType 响应实体类型
+     * @param nodes      指定服务端节点[数量为1时不支持节点容错]
+     * @return 转换后的args响应内容实体的future
+     */
+    <T> CompletableFuture<T> invokeFuture(String mapping, Class<T> resultType, Object[] args, HostAndPort... nodes);
+
+    /**
+     * 异步调用, 并将成功响应的args自动转换为T类型，带超时重试机制
+     *
+     * @param mapping    服务端对应处理器的mapping标识，服务端@mapping注解的值
+     * @param args       请求实体列表
+     * @param resultType 响应实体类型
+     * @param nodes      指定多个服务端节点
+     * @param retryTimes 失败重试次数
+     * @return 转换后的args响应内容实体的future
+     */
+    <T> CompletableFuture<T> invokeFuture(String mapping, Class<T> resultType, int retryTimes, Object[] args,
+                                          HostAndPort... nodes);
+
+    /**
+     * 异步调用, 并将成功响应的args自动转换为T类型，指定本次调用参数
+     *
+     * @param mapping    服务端对应处理器的mapping标识，服务端@mapping注解的值
+     * @param resultType 响应实体类型
+     * @param options    本次调用的超时时间、重试次数等，为空时使用客户端配置
+     * @param args       请求实体列表
+     * @param nodes      指定多个服务端节点
+     * @return 转换后的args响应内容实体的future
+     */
+    <T> CompletableFuture<T> invokeFuture(String mapping, Class<T> resultType, @Nullable CallOptions options,
+                                          Object[] args, HostAndPort... nodes);
+
+    /**
+     * 批量调用，多个请求(可以是不同的mapping)选择同一个节点的同一个连接，编码为一个帧一次写出
+     * 服务端并发处理，每个请求的future在收到各自的响应后立即完成，与其他请求无关；批量调用不进行失败重试
+     *
+     * @param calls 调用列表
+     * @param nodes 指定服务端节点[数量为1时不支持节点容错]
+     * @return 与调用列表顺序一致的响应内容future列表
+     */
+    List<CompletableFuture<RpcResponse>> invokeBatch(List<Call> calls, HostAndPort... nodes);
+
+    /**
+     * 批量调用，指定本次调用参数
+     *
+     * @param calls   调用列表
+     * @param options 本次调用的超时时间，为空时使用客户端配置
+     * @param nodes   指定服务端节点[数量为1时不支持节点容错]
+     * @return 与调用列表顺序一致的响应内容future列表
+     */
+    List<CompletableFuture<RpcResponse>> invokeBatch(List<Call> calls, @Nullable CallOptions options,
+                                                     HostAndPort... nodes);
+
     /**
      * 同步调用, 使用注册中心获取服务地址[需配置注册中心地址]
      *
@@ -125,6 +272,17 @@ public interface Client {
      */
     RpcResponse invokeWithRegistry(String mapping, String serviceName, int retryTimes, Object[] args);
 
+    /**
+     * 同步调用, 使用注册中心获取服务地址[需配置注册中心地址]
+     *
+     * @param mapping     服务端对应处理器的mapping标识，服务端@mapping注解的值
+     * @param serviceName 服务名称[注册到注册中心的服务名称]
+     * @param options     本次调用的超时时间、重试次数等，为空时使用客户端配置
+     * @param args        请求实体列表
+     * @return 响应内容
+     */
+    RpcResponse invokeWithRegistry(String mapping, String serviceName, @Nullable CallOptions options, Object[] args);
+
     /**
      * 同步调用, 使用注册中心获取服务地址[需配置注册中心地址]
      *
@@ -148,6 +306,19 @@ public interface Client {
      */
     <T> T invokeWithRegistry(String mapping, Class<T> resultType, String serviceName, int retryTimes, Object[] args);
 
+    /**
+     * 同步调用, 使用注册中心获取服务地址[需配置注册中心地址]
+     *
+     * @param mapping     服务端对应处理器的mapping标识，服务端@mapping注解的值
+     * @param resultType  响应实体类型
+     * @param serviceName 服务名称[注册到注册中心的服务名称]
+     * @param options     本次调用的超时时间、重试次数等，为空时使用客户端配置
+     * @param args        请求实体列表
+     * @return 响应内容实体
+     */
+    <T> T invokeWithRegistry(String mapping, Class<T> resultType, String serviceName, @Nullable CallOptions options,
+                             Object[] args);
+
     /**
      * 异步调用, 使用注册中心获取服务地址[需配置注册中心地址]
      *
@@ -158,4 +329,99 @@ public interface Client {
      */
     void invokeAsyncWithRegistry(String mapping, @Nullable RpcCallback callback, String serviceName, Object[] args);
 
+    /**
+     * 异步调用, 使用注册中心获取服务地址[需配置注册中心地址]
+     *
+     * @param mapping     服务端对应处理器的mapping标识，服务端@mapping注解的值
+     * @param callback    响应回调任务
+     * @param serviceName 服务名称[注册到注册中心的服务名称]
+     * @param options     本次调用的超时时间等，为空时使用客户端配置
+     * @param args        请求实体列表
+     */
+    void invokeAsyncWithRegistry(String mapping, @Nullable RpcCallback callback, String serviceName,
+                                 @Nullable CallOptions options, Object[] args);
+
+    /**
+     * 异步调用, 使用注册中心获取服务地址[需配置注册中心地址]
+     *
+     * @param mapping     服务端对应处理器的mapping标识，服务端@mapping注解的值
+     * @param args        请求实体列表
+     * @param serviceName 服务名称[注册到注册中心的服务名称]
+     * @return 响应内容的future
+     */
+    CompletableFuture<RpcResponse> invokeFutureWithRegistry(String mapping, String serviceName, Object[] args);
+
+    /**
+     * 异步调用, 使用注册中心获取服务地址[需配置注册中心地址]
+     *
+     * @param mapping     服务端对应处理器的mapping标识，服务端@mapping注解的值
+     * @param args        请求实体列表
+     * @param serviceName 服务名称[注册到注册中心的服务名称]
+     * @param retryTimes  失败重试次数
+     * @return 响应内容的future
+     */
+    CompletableFuture<RpcResponse> invokeFutureWithRegistry(String mapping, String serviceName, int retryTimes,
+                                                            Object[] args);
+
+    /**
+     * 异步调用, 使用注册中心获取服务地址[需配置注册中心地址]
+     *
+     * @param mapping     服务端对应处理器的mapping标识，服务端@mapping注解的值
+     * @param serviceName 服务名称[注册到注册中心的服务名称]
+     * @param options     本次调用的超时时间、重试次数等，为空时使用客户端配置
+     * @param args        请求实体列表
+     * @return 响应内容的future
+     */
+    CompletableFuture<RpcResponse> invokeFutureWithRegistry(String mapping, String serviceName,
+                                                            @Nullable CallOptions options, Object[] args);
+
+    /**
+     * 异步调用, 使用注册中心获取服务地址[需配置注册中心地址]
+     *
+     * @param mapping     服务端对应处理器的mapping标识，服务端@mapping注解的值
+     * @param args        请求实体列表
+     * @param resultType  响应实体类型
+     * @param serviceName 服务名称[注册到注册中心的服务名称]
+     * @return 响应内容实体的future
+     */
+    <T> CompletableFuture<T> invokeFutureWithRegistry(String mapping, Class<T> resultType, String serviceName,
+                                                      Object[] args);
+
+    /**
+     * 异步调用, 使用注册中心获取服务地址[需配置注册中心地址]
+     *
+     * @param mapping     服务端对应处理器的mapping标识，服务端@mapping注解的值
+     * @param args        请求实体列表
+     * @param resultType  响应实体类型
+     * @param serviceName 服务名称[注册到注册中心的服务名称]
+     * @param retryTimes  失败重试次数
+     * @return 响应内容实体的future
+     */
+    <T> CompletableFuture<T> invokeFutureWithRegistry(String mapping, Class<T> resultType, String serviceName,
+                                                      int retryTimes, Object[] args);
+
+    /**
+     * 异步调用, 使用注册中心获取服务地址[需配置注册中心地址]
+     *
+     * @param mapping     服务端对应处理器的mapping标识，服务端@mapping注解的值
+     * @param resultType  响应实体类型
+     * @param serviceName 服务名称[注册到注册中心的服务名称]
+     * @param options     本次调用的超时时间、重试次数等，为空时使用客户端配置
+     * @param args        请求实体列表
+     * @return 响应内容实体的future
+     */
+    <T> CompletableFuture<T> invokeFutureWithRegistry(String mapping, Class<T> resultType, String serviceName,
+                                                      @Nullable CallOptions options, Object[] args);
+
+    /**
+     * 批量调用, 使用注册中心获取服务地址[需配置注册中心地址]
+     *
+     * @param calls       调用列表
+     * @param serviceName 服务名称[注册到注册中心的服务名称]
+     * @param options     本次调用的超时时间，为空时使用客户端配置
+     * @return 与调用列表顺序一致的响应内容future列表
+     */
+    List<CompletableFuture<RpcResponse>> invokeBatchWithRegistry(List<Call> calls, String serviceName,
+                                                                 @Nullable CallOptions options);
+
 }
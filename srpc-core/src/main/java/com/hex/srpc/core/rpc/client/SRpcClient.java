@@ -1,5 +1,6 @@
 package com.hex.srpc.core.rpc.client;
 
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.hex.common.constant.ResponseStatus;
 import com.hex.common.constant.RpcConstant;
@@ -11,6 +12,7 @@ import com.hex.common.id.IdGenerator;
 import com.hex.common.net.HostAndPort;
 import com.hex.common.spi.ExtensionLoader;
 import com.hex.common.thread.SRpcThreadFactory;
+import com.hex.common.thread.VirtualThreadExecutor;
 import com.hex.common.utils.ThreadUtil;
 import com.hex.common.utils.TypeUtil;
 import com.hex.registry.ServiceDiscover;
@@ -18,21 +20,33 @@ import com.hex.srpc.core.config.SRpcClientConfig;
 import com.hex.srpc.core.connection.Connection;
 import com.hex.srpc.core.connection.IConnection;
 import com.hex.srpc.core.handler.connection.NettyClientConnManageHandler;
+import com.hex.srpc.core.handler.flush.BatchFlushHandler;
 import com.hex.srpc.core.handler.process.ClientProcessHandler;
+import com.hex.srpc.core.invoke.Call;
+import com.hex.srpc.core.invoke.CallOptions;
+import com.hex.srpc.core.invoke.HedgePolicy;
+import com.hex.srpc.core.invoke.RequestBudget;
 import com.hex.srpc.core.invoke.ResponseFuture;
 import com.hex.srpc.core.invoke.ResponseMapping;
+import com.hex.srpc.core.invoke.ResultCache;
 import com.hex.srpc.core.invoke.RpcCallback;
+import com.hex.srpc.core.invoke.RpcContext;
+import com.hex.srpc.core.invoke.SingleFlight;
 import com.hex.srpc.core.loadbalance.LoadBalancer;
 import com.hex.srpc.core.loadbalance.LoadBalancerFactory;
 import com.hex.srpc.core.node.INodeManager;
 import com.hex.srpc.core.node.NodeManager;
 import com.hex.srpc.core.protocol.Command;
+import com.hex.srpc.core.protocol.CommandBatch;
 import com.hex.srpc.core.protocol.RpcRequest;
 import com.hex.srpc.core.protocol.RpcResponse;
+import com.hex.srpc.core.retry.RetryPolicy;
 import com.hex.srpc.core.rpc.AbstractRpc;
 import com.hex.srpc.core.rpc.Client;
 import com.hex.srpc.core.rpc.codec.RpcPacketDecoder;
 import com.hex.srpc.core.rpc.codec.RpcPacketEncoder;
+import com.hex.srpc.core.rpc.compress.CompressPolicy;
+import com.hex.srpc.core.rpc.serialize.Serializer;
 import com.hex.srpc.core.rpc.task.HeartBeatTask;
 import com.hex.srpc.core.rpc.task.NodeHealthCheckTask;
 import com.hex.srpc.core.thread.CallBackTaskThreadPool;
@@ -48,12 +62,20 @@ import io.netty.handler.timeout.IdleStateHandler;
 import io.netty.util.concurrent.DefaultEventExecutorGroup;
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.hex.srpc.core.connection.Connection.CONN;
 
@@ -62,6 +84,13 @@ import static com.hex.srpc.core.connection.Connection.CONN;
  */
 public class SRpcClient extends AbstractRpc implements Client {
 
+    /**
+     * 心跳响应超时时间(毫秒)
+     */
+    private static final long HEART_BEAT_TIMEOUT_MILLIS = 5000L;
+    private static final int MAX_RETRY_BUDGETS = 1024;
+    private static final long RETRY_BUDGET_LOG_INTERVAL = 1000L;
+
     private final Bootstrap bootstrap = new Bootstrap();
     private SRpcClientConfig config;
     private EventLoopGroup eventLoopGroupSelector;
@@ -70,7 +99,21 @@ public class SRpcClient extends AbstractRpc implements Client {
     private AtomicBoolean isClientStart = new AtomicBoolean(false);
     private ServiceDiscover serviceDiscover;
     private ResponseMapping responseMapping;
-    private ThreadPoolExecutor callBackTaskThreadPool;
+    private ExecutorService callBackTaskThreadPool;
+    private HedgePolicy hedgePolicy;
+    private RetryPolicy retryPolicy;
+    private ResultCache resultCache;
+    private SingleFlight singleFlight;
+    /**
+     * 重试预算，数量有上限且长时间未使用的会被淘汰
+     */
+    private final ConcurrentMap<String, RequestBudget> retryBudgets = CacheBuilder.newBuilder()
+            .maximumSize(MAX_RETRY_BUDGETS)
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .<String, RequestBudget>build()
+            .asMap();
+    private CompressPolicy compressPolicy;
+    private long defaultTimeoutMillis;
 
     private SRpcClient() {
     }
@@ -205,6 +248,8 @@ public class SRpcClient extends AbstractRpc implements Client {
             this.eventLoopGroupSelector = new NioEventLoopGroup(IO_THREADS);
         }
         this.defaultEventExecutorGroup = new DefaultEventExecutorGroup(config.getChannelWorkerThreads());
+        // 帧压缩策略，所有连接共享统计
+        this.compressPolicy = new CompressPolicy(config.getCompressThreshold(), config.isAdaptiveCompressEnable());
         // 流控
         buildTrafficMonitor(defaultEventExecutorGroup,
                 config.isTrafficMonitorEnable(), config.getMaxReadSpeed(), config.getMaxWriteSpeed());
@@ -236,6 +281,16 @@ public class SRpcClient extends AbstractRpc implements Client {
         logger.info("RpcClient init success");
     }
 
+    @Override
+    public HedgePolicy getHedgePolicy() {
+        return hedgePolicy;
+    }
+
+    @Override
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
     @Override
     public boolean sendHeartBeat(HostAndPort node) {
         IConnection connection = getConnection(Lists.newArrayList(node), null);
@@ -249,7 +304,7 @@ public class SRpcClient extends AbstractRpc implements Client {
         ResponseFuture responseFuture;
         //发送心跳
         try {
-            responseFuture = sendCommand(ping, connection, null, 5);
+            responseFuture = sendCommand(ping, connection, null, HEART_BEAT_TIMEOUT_MILLIS);
         } catch (Exception e) {
             logger.error("sync send heartBeat packet error", e);
             responseMapping.invalidate(ping.getSeq());
@@ -267,12 +322,13 @@ public class SRpcClient extends AbstractRpc implements Client {
 
     @Override
     public RpcResponse invoke(String mapping, int retryTimes, Object[] args, HostAndPort... nodes) {
+        return invoke(mapping, CallOptions.retry(retryTimes), args, nodes);
+    }
+
+    @Override
+    public RpcResponse invoke(String mapping, CallOptions options, Object[] args, HostAndPort... nodes) {
         assertNodesNotNull(nodes);
-        RpcResponse response;
-        do {
-            response = send(mapping, args, nodes, null, false);
-        } while (retryTimes-- > 0 && response.isRetried());
-        return response;
+        return doInvoke(mapping, args, nodes, options, null);
     }
 
     @Override
@@ -282,21 +338,98 @@ public class SRpcClient extends AbstractRpc implements Client {
 
     @Override
     public <T> T invoke(String mapping, Class<T> resultType, int retryTimes, Object[] args, HostAndPort... nodes) {
-        RpcResponse response = invoke(mapping, retryTimes, args, nodes);
-        if (ResponseStatus.SUCCESS_CODE.equals(response.getStatus())) {
-            Object body = response.getBody();
-            return TypeUtil.convert(body, resultType,
-                    "the resultType dose not match the response body, response body type:" + (body == null ? "Void" : body.getClass()));
-        } else {
-            logger.warn("The response status to this request {} is {}", response.getSeq(), response.getStatus());
-            return null;
-        }
+        return invoke(mapping, resultType, CallOptions.retry(retryTimes), args, nodes);
+    }
+
+    @Override
+    public <T> T invoke(String mapping, Class<T> resultType, CallOptions options, Object[] args,
+                        HostAndPort... nodes) {
+        return convertResult(invoke(mapping, options, args, nodes), resultType);
     }
 
     @Override
     public void invokeAsync(String mapping, RpcCallback callback, Object[] args, HostAndPort... nodes) {
+        invokeAsync(mapping, callback, null, args, nodes);
+    }
+
+    @Override
+    public void invokeAsync(String mapping, RpcCallback callback, CallOptions options, Object[] args,
+                            HostAndPort... nodes) {
         assertNodesNotNull(nodes);
-        send(mapping, args, nodes, callback, true);
+        long timeoutMillis = timeoutMillis(options);
+        long hedgeDelayMillis = hedgeDelayMillis(options);
+        if (options == null || !options.isCoalesce()) {
+            send(mapping, args, nodes, callback, timeoutMillis, hedgeDelayMillis);
+            return;
+        }
+        singleFlight.execute(mapping, targetKey(null, nodes), args,
+                () -> send(mapping, args, nodes, null, timeoutMillis, hedgeDelayMillis).getFuture())
+                .whenComplete((response, throwable) -> {
+                    if (callback == null) {
+                        return;
+                    }
+                    // 合并的请求异常完成时没有请求序号，为每个调用方生成各自的序号
+                    RpcResponse result = throwable == null ? response : RpcResponse.clientError(IdGenerator.getId());
+                    Runnable task = () -> callback.callback(result);
+                    // 线程池拒绝时在当前线程执行，保证回调一定执行
+                    executeTask(task, task);
+                });
+    }
+
+    @Override
+    public CompletableFuture<RpcResponse> invokeFuture(String mapping, Object[] args, HostAndPort... nodes) {
+        return invokeFuture(mapping, 0, args, nodes);
+    }
+
+    @Override
+    public CompletableFuture<RpcResponse> invokeFuture(String mapping, int retryTimes, Object[] args,
+                                                       HostAndPort... nodes) {
+        return invokeFuture(mapping, CallOptions.retry(retryTimes), args, nodes);
+    }
+
+    @Override
+    public CompletableFuture<RpcResponse> invokeFuture(String mapping, CallOptions options, Object[] args,
+                                                       HostAndPort... nodes) {
+        assertNodesNotNull(nodes);
+        return completeOnCallbackPool(doInvokeFuture(mapping, args, nodes, options, null));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> invokeFuture(String mapping, Class<T> resultType, Object[] args,
+                                                 HostAndPort... nodes) {
+        return invokeFuture(mapping, resultType, 0, args, nodes);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> invokeFuture(String mapping, Class<T> resultType, int retryTimes, Object[] args,
+                                                 HostAndPort... nodes) {
+        return invokeFuture(mapping, resultType, CallOptions.retry(retryTimes), args, nodes);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> invokeFuture(String mapping, Class<T> resultType, CallOptions options,
+                                                 Object[] args, HostAndPort... nodes) {
+        return invokeFuture(mapping, options, args, nodes).thenApply(response -> convertResult(response, resultType));
+    }
+
+    @Override
+    public List<CompletableFuture<RpcResponse>> invokeBatch(List<Call> calls, HostAndPort... nodes) {
+        return invokeBatch(calls, null, nodes);
+    }
+
+    @Override
+    public List<CompletableFuture<RpcResponse>> invokeBatch(List<Call> calls, CallOptions options,
+                                                            HostAndPort... nodes) {
+        assertNodesNotNull(nodes);
+        if (calls == null || calls.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<CompletableFuture<RpcResponse>> futures = sendBatch(calls, nodes, timeoutMillis(options));
+        List<CompletableFuture<RpcResponse>> result = new ArrayList<>(futures.size());
+        for (CompletableFuture<RpcResponse> future : futures) {
+            result.add(completeOnCallbackPool(future));
+        }
+        return result;
     }
 
     @Override
@@ -306,8 +439,13 @@ public class SRpcClient extends AbstractRpc implements Client {
 
     @Override
     public RpcResponse invokeWithRegistry(String mapping, String serviceName, int retryTimes, Object[] args) {
+        return invokeWithRegistry(mapping, serviceName, CallOptions.retry(retryTimes), args);
+    }
+
+    @Override
+    public RpcResponse invokeWithRegistry(String mapping, String serviceName, CallOptions options, Object[] args) {
         registryConfigCheck();
-        return invoke(mapping, retryTimes, args, discoverRpcService(serviceName));
+        return doInvoke(mapping, args, discoverRpcService(serviceName), options, serviceName);
     }
 
     @Override
@@ -317,17 +455,77 @@ public class SRpcClient extends AbstractRpc implements Client {
 
     @Override
     public <T> T invokeWithRegistry(String mapping, Class<T> resultType, String serviceName, int retryTimes, Object[] args) {
+        return invokeWithRegistry(mapping, resultType, serviceName, CallOptions.retry(retryTimes), args);
+    }
+
+    @Override
+    public <T> T invokeWithRegistry(String mapping, Class<T> resultType, String serviceName, CallOptions options,
+                                    Object[] args) {
         registryConfigCheck();
-        return invoke(mapping, resultType, retryTimes, args, discoverRpcService(serviceName));
+        return convertResult(doInvoke(mapping, args, discoverRpcService(serviceName), options,
+                serviceName), resultType);
     }
 
     @Override
     public void invokeAsyncWithRegistry(String mapping, RpcCallback callback, String serviceName, Object[] args) {
+        invokeAsyncWithRegistry(mapping, callback, serviceName, null, args);
+    }
+
+    @Override
+    public void invokeAsyncWithRegistry(String mapping, RpcCallback callback, String serviceName, CallOptions options,
+                                        Object[] args) {
+        registryConfigCheck();
+        invokeAsync(mapping, callback, options, args, discoverRpcService(serviceName));
+    }
+
+    @Override
+    public CompletableFuture<RpcResponse> invokeFutureWithRegistry(String mapping, String serviceName, Object[] args) {
+        return invokeFutureWithRegistry(mapping, serviceName, 0, args);
+    }
+
+    @Override
+    public CompletableFuture<RpcResponse> invokeFutureWithRegistry(String mapping, String serviceName, int retryTimes,
+                                                                   Object[] args) {
+        return invokeFutureWithRegistry(mapping, serviceName, CallOptions.retry(retryTimes), args);
+    }
+
+    @Override
+    public CompletableFuture<RpcResponse> invokeFutureWithRegistry(String mapping, String serviceName,
+                                                                   CallOptions options, Object[] args) {
+        registryConfigCheck();
+        return completeOnCallbackPool(doInvokeFuture(mapping, args, discoverRpcService(serviceName), options,
+                serviceName));
+    }
+
+    @Override
+    public List<CompletableFuture<RpcResponse>> invokeBatchWithRegistry(List<Call> calls, String serviceName,
+                                                                        CallOptions options) {
+        registryConfigCheck();
+        return invokeBatch(calls, options, discoverRpcService(serviceName));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> invokeFutureWithRegistry(String mapping, Class<T> resultType, String serviceName,
+                                                             Object[] args) {
+        return invokeFutureWithRegistry(mapping, resultType, serviceName, 0, args);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> invokeFutureWithRegistry(String mapping, Class<T> resultType, String serviceName,
+                                                             int retryTimes, Object[] args) {
+        return invokeFutureWithRegistry(mapping, resultType, serviceName, CallOptions.retry(retryTimes), args);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> invokeFutureWithRegistry(String mapping, Class<T> resultType, String serviceName,
+                                                             CallOptions options, Object[] args) {
         registryConfigCheck();
-        invokeAsync(mapping, callback, args, discoverRpcService(serviceName));
+        return completeOnCallbackPool(doInvokeFuture(mapping, args, discoverRpcService(serviceName), options,
+                serviceName))
+                .thenApply(response -> convertResult(response, resultType));
     }
 
-    private RpcRequest buildRequest(String mapping, Object[] args) {
+    private RpcRequest buildRequest(String mapping, Object[] args, long timeoutMillis) {
         RpcRequest request = new RpcRequest();
         request.setSeq(IdGenerator.getId());
         if (StringUtils.isBlank(mapping)) {
@@ -336,44 +534,426 @@ public class SRpcClient extends AbstractRpc implements Client {
         request.setMapping(mapping);
         request.setTimestamp(System.currentTimeMillis());
         request.setArgs(args);
+        // 截止时间，在服务端路由方法中发起的调用继承当前请求的截止时间
+        long deadline = request.getTimestamp() + timeoutMillis;
+        Long inherited = RpcContext.getDeadline();
+        request.setDeadline(inherited != null && inherited < deadline ? inherited : deadline);
         return request;
     }
 
-    private RpcResponse send(String mapping, Object[] args, HostAndPort[] nodes, RpcCallback callback, boolean sendAsync) {
+    /**
+     * 本次调用的超时时间(毫秒)，未指定时使用客户端配置
+     */
+    private long timeoutMillis(CallOptions options) {
+        if (options != null && options.getTimeoutMillis() > 0) {
+            return options.getTimeoutMillis();
+        }
+        return defaultTimeoutMillis;
+    }
+
+    /**
+     * 本次调用的对冲延迟，未指定时不对冲
+     */
+    private long hedgeDelayMillis(CallOptions options) {
+        return options == null ? 0L : options.getHedgeDelayMillis();
+    }
+
+    private <T> T convertResult(RpcResponse response, Class<T> resultType) {
+        if (ResponseStatus.SUCCESS_CODE.equals(response.getStatus())) {
+            Object body = response.getBody();
+            return TypeUtil.convert(body, resultType,
+                    "the resultType dose not match the response body, response body type:" + (body == null ? "Void" : body.getClass()));
+        } else {
+            logger.warn("The response status to this request {} is {}", response.getSeq(), response.getStatus());
+            return null;
+        }
+    }
+
+    /**
+     * 返回给调用方的future在回调线程池中完成，调用方组合的后续操作不会在时间轮或IO线程中执行，
+     * 与RpcCallback一致，未设置线程池或线程池拒绝时在当前线程完成
+     */
+    private <T> CompletableFuture<T> completeOnCallbackPool(CompletableFuture<T> source) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        source.whenComplete((value, throwable) -> {
+            Runnable task = () -> {
+                if (throwable != null) {
+                    result.completeExceptionally(throwable);
+                } else {
+                    result.complete(value);
+                }
+            };
+            executeTask(task, task);
+        });
+        return result;
+    }
+
+    /**
+     * 同步调用，开启结果缓存时先查缓存
+     */
+    private RpcResponse doInvoke(String mapping, Object[] args, HostAndPort[] nodes, CallOptions options,
+                                 String serviceName) {
+        if (options != null && options.getCacheTtlMillis() > 0) {
+            // 先查结果缓存，命中时不选择连接也不发送请求；加载及后台刷新每次使用新的调用状态
+            return resultCache.get(mapping, targetKey(serviceName, nodes), args, options.getCacheTtlMillis(),
+                    options.getCacheRefreshMillis(), () -> invokeUncached(mapping, args, nodes, options, serviceName));
+        }
+        return invokeUncached(mapping, args, nodes, options, serviceName);
+    }
+
+    private RpcResponse invokeUncached(String mapping, Object[] args, HostAndPort[] nodes, CallOptions options,
+                                       String serviceName) {
+        if (options == null || !options.isCoalesce()) {
+            return invokeWithRetry(new Invocation(mapping, args, nodes, options, serviceName));
+        }
+        // 合并的请求以异步方式发送，所有调用方在同一个结果上等待，结果总会以响应或超时完成
+        try {
+            return doInvokeFuture(mapping, args, nodes, options, serviceName).join();
+        } catch (Exception e) {
+            logger.error("coalesced request failed, mapping: {}", mapping, e);
+            return RpcResponse.clientError(IdGenerator.getId());
+        }
+    }
+
+    /**
+     * 异步调用，开启请求合并时与进行中的相同请求共用结果，只有实际发送请求的调用创建调用状态
+     */
+    private CompletableFuture<RpcResponse> doInvokeFuture(String mapping, Object[] args, HostAndPort[] nodes,
+                                                          CallOptions options, String serviceName) {
+        if (options == null || !options.isCoalesce()) {
+            return sendWithRetry(new Invocation(mapping, args, nodes, options, serviceName));
+        }
+        return singleFlight.execute(mapping, targetKey(serviceName, nodes), args,
+                () -> sendWithRetry(new Invocation(mapping, args, nodes, options, serviceName)));
+    }
+
+    /**
+     * 同步调用，即在异步结果上限时等待，需要重试时退避等待后换节点重试
+     */
+    private RpcResponse invokeWithRetry(Invocation invocation) {
+        for (; ; ) {
+            ResponseFuture responseFuture = send(invocation);
+            RpcResponse response = responseFuture.waitForResponse();
+            long backoff = nextRetry(invocation, responseFuture, response);
+            if (backoff < 0) {
+                return response;
+            }
+            if (backoff > 0) {
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return response;
+                }
+            }
+        }
+    }
+
+    /**
+     * 异步发送，需要重试时由时间轮退避后换节点再次发送，不阻塞调用线程
+     */
+    private CompletableFuture<RpcResponse> sendWithRetry(Invocation invocation) {
+        ResponseFuture responseFuture = send(invocation);
+        return responseFuture.getFuture().thenCompose(response -> {
+            long backoff = nextRetry(invocation, responseFuture, response);
+            if (backoff < 0) {
+                return CompletableFuture.completedFuture(response);
+            }
+            // 当前线程是完成响应的时间轮或IO线程，重试发送可能等待连接建立或可写，始终交由回调线程池执行
+            CompletableFuture<RpcResponse> retry = new CompletableFuture<>();
+            Runnable retryTask = () -> executeTask(() -> sendWithRetry(invocation)
+                    .whenComplete((result, throwable) -> {
+                        if (throwable != null) {
+                            retry.completeExceptionally(throwable);
+                        } else {
+                            retry.complete(result);
+                        }
+                    }), () -> retry.complete(response));
+            if (backoff == 0) {
+                retryTask.run();
+            } else {
+                ResponseMapping.newTimeout(timeout -> retryTask.run(), backoff);
+            }
+            return retry;
+        });
+    }
+
+    private ResponseFuture send(Invocation invocation) {
+        return send(invocation.mapping, invocation.args, invocation.candidates, null, invocation.timeoutMillis,
+                invocation.hedgeDelayMillis);
+    }
+
+    /**
+     * 判断是否重试：重试次数、重试策略及该服务的重试预算都允许时才重试，
+     * 重试时排除本次调用已尝试过的节点，全部节点都尝试过后不再排除
+     *
+     * @return 重试前的等待时间(毫秒)，不重试时返回-1
+     */
+    private long nextRetry(Invocation invocation, ResponseFuture responseFuture, RpcResponse response) {
+        if (invocation.attempt >= invocation.retryTimes || !retryPolicy.isRetryable(response)) {
+            return -1;
+        }
+        if (!invocation.retryBudget.tryAcquire()) {
+            long rejected = invocation.retryBudget.getRejectCount();
+            if (rejected == 1 || rejected % RETRY_BUDGET_LOG_INTERVAL == 0) {
+                logger.warn("Retry budget exhausted, retry skipped, mapping: {}, total skipped: {}",
+                        invocation.mapping, rejected);
+            }
+            return -1;
+        }
+        invocation.attempt++;
+        HostAndPort tried = responseFuture.getRemoteAddress();
+        if (tried != null && invocation.candidates.length > 1) {
+            HostAndPort[] others = Arrays.stream(invocation.candidates)
+                    .filter(node -> !node.equals(tried))
+                    .toArray(HostAndPort[]::new);
+            invocation.candidates = others.length > 0 ? others : invocation.nodes;
+        }
+        return retryPolicy.backoffMillis(invocation.attempt, invocation.retryBackoffMillis,
+                config.getRetryMaxBackoffMillis());
+    }
+
+    /**
+     * 重试预算，按服务名称统计，未使用注册中心时按节点集合统计(与节点顺序无关)
+     */
+    private RequestBudget retryBudget(String serviceName, HostAndPort[] nodes) {
+        return retryBudgets.computeIfAbsent(targetKey(serviceName, nodes),
+                k -> new RequestBudget(config.getRetryBudgetPercent(), config.getRetryBudgetMinPerSecond()));
+    }
+
+    /**
+     * 调用目标的标识，使用注册中心时为服务名称，否则为排序后的节点集合
+     */
+    private static String targetKey(String serviceName, HostAndPort[] nodes) {
+        if (serviceName != null) {
+            return serviceName;
+        }
+        String[] addresses = new String[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            addresses[i] = nodes[i].toString();
+        }
+        Arrays.sort(addresses);
+        return String.join(",", addresses);
+    }
+
+    /**
+     * 在回调线程池中执行任务，任务可能等待连接可写，不能在时间轮线程中执行
+     *
+     * @param rejected 线程池拒绝任务时执行
+     */
+    private void executeTask(Runnable task, Runnable rejected) {
+        try {
+            if (callBackTaskThreadPool != null) {
+                callBackTaskThreadPool.execute(task);
+            } else {
+                task.run();
+            }
+        } catch (RejectedExecutionException e) {
+            logger.warn("callback task thread pool is full, task rejected");
+            if (rejected != null) {
+                rejected.run();
+            }
+        }
+    }
+
+    private ResponseFuture send(String mapping, Object[] args, HostAndPort[] nodes, RpcCallback callback,
+                                long timeoutMillis, long hedgeDelayMillis) {
+        if (hedgeDelayMillis != 0 && nodes.length > 1) {
+            return sendHedged(mapping, args, nodes, callback, timeoutMillis, hedgeDelayMillis);
+        }
+        return send(mapping, args, nodes, callback, timeoutMillis);
+    }
+
+    /**
+     * 对冲发送：超过对冲延迟仍未收到响应时，由负载均衡在其他节点中选择一个发送相同请求，
+     * 先到的可用响应生效，另一个响应到达后直接忽略；对冲请求受预算限制，见{@link HedgePolicy}
+     */
+    private ResponseFuture sendHedged(String mapping, Object[] args, HostAndPort[] nodes, RpcCallback callback,
+                                      long timeoutMillis, long hedgeDelayMillis) {
+        long start = System.currentTimeMillis();
+        Long inherited = RpcContext.getDeadline();
+        long deadline = inherited != null && inherited < start + timeoutMillis ? inherited : start + timeoutMillis;
+        hedgePolicy.onRequest();
+
+        ResponseFuture primary = send(mapping, args, nodes, null, timeoutMillis);
+        // 聚合结果不关联节点，节点错误只由各次请求自身的超时统计；结果由各次请求或截止时间的定时任务完成
+        ResponseFuture result = new ResponseFuture(primary.getRequestSeq(), Math.max(deadline - start, 1L),
+                null, callback);
+        result.scheduleTimeout();
+        AtomicInteger pending = new AtomicInteger(1);
+        primary.getFuture().thenAccept(response -> hedgeResponse(mapping, result, response, pending, start, false));
+
+        long delay = hedgePolicy.hedgeDelay(mapping, hedgeDelayMillis);
+        if (delay > 0 && start + delay < deadline && !primary.getFuture().isDone()) {
+            ResponseMapping.newTimeout(timeout -> executeTask(
+                    () -> sendHedge(mapping, args, nodes, primary, result, pending, deadline), null), delay);
+        }
+        return result;
+    }
+
+    private void sendHedge(String mapping, Object[] args, HostAndPort[] nodes, ResponseFuture primary,
+                           ResponseFuture result, AtomicInteger pending, long deadline) {
+        long start = System.currentTimeMillis();
+        if (result.getFuture().isDone() || deadline <= start) {
+            return;
+        }
+        HostAndPort[] others = Arrays.stream(nodes)
+                .filter(node -> !node.equals(primary.getRemoteAddress()))
+                .toArray(HostAndPort[]::new);
+        if (others.length == 0 || !hedgePolicy.tryAcquire()) {
+            return;
+        }
+        pending.incrementAndGet();
+        send(mapping, args, others, null, deadline - start).getFuture()
+                .thenAccept(response -> hedgeResponse(mapping, result, response, pending, start, true));
+    }
+
+    /**
+     * 可用的响应直接生效，可重试的响应(超时、服务不可用)等到最后一个请求返回时才生效
+     */
+    private void hedgeResponse(String mapping, ResponseFuture result, RpcResponse response, AtomicInteger pending,
+                               long start, boolean hedge) {
+        boolean last = pending.decrementAndGet() == 0;
+        if (response.isRetried() && !last) {
+            return;
+        }
+        if (ResponseStatus.SUCCESS_CODE.equals(response.getStatus())) {
+            hedgePolicy.record(mapping, System.currentTimeMillis() - start);
+        }
+        if (result.receipt(response) && hedge) {
+            hedgePolicy.hedgeWon();
+        }
+    }
+
+    private ResponseFuture send(String mapping, Object[] args, HostAndPort[] nodes, RpcCallback callback,
+                                long timeoutMillis) {
         // 构造请求
-        RpcRequest request = buildRequest(mapping, args);
-        RpcResponse response = null;
-        ResponseFuture responseFuture;
+        RpcRequest request = buildRequest(mapping, args, timeoutMillis);
+        if (RpcContext.isExpired(request.getDeadline())) {
+            // 继承的截止时间已过，无需发送
+            return ResponseFuture.completed(RpcResponse.requestExpired(request.getSeq()));
+        }
         try {
-            responseFuture = sendCommand(request, Arrays.asList(nodes), callback, config.getRequestTimeout());
+            // 超时以截止时间为准，继承的截止时间可能更早
+            long remaining = Math.max(request.getDeadline() - System.currentTimeMillis(), 1L);
+            return sendCommand(request, Arrays.asList(nodes), callback, remaining);
+
+        } catch (ConnectionException e) {
+            failed(request, e);
+            // 已选定连接时带上节点，重试时排除该节点
+            return ResponseFuture.completed(RpcResponse.serviceUnAvailable(request.getSeq()), e.getRemoteAddress());
 
-        } catch (ConnectionException | NodeException e) {
+        } catch (NodeException e) {
             failed(request, e);
-            return RpcResponse.serviceUnAvailable(request.getSeq());
+            return ResponseFuture.completed(RpcResponse.serviceUnAvailable(request.getSeq()));
 
         } catch (Exception e) {
             failed(request, e);
-            return RpcResponse.clientError(request.getSeq());
+            return ResponseFuture.completed(RpcResponse.clientError(request.getSeq()));
+        }
+    }
+
+    /**
+     * 批量发送，所有请求使用同一个连接，一次写出
+     * 单个请求的在途名额不足或截止时间已过时该请求直接完成，不影响其他请求
+     */
+    private List<CompletableFuture<RpcResponse>> sendBatch(List<Call> calls, HostAndPort[] nodes,
+                                                          long timeoutMillis) {
+        List<CompletableFuture<RpcResponse>> futures = new ArrayList<>(calls.size());
+        List<RpcRequest> requests = new ArrayList<>(calls.size());
+        for (Call call : calls) {
+            requests.add(buildRequest(call.getMapping(), call.getArgs(), timeoutMillis));
+        }
+        IConnection connection;
+        try {
+            connection = getConnection(Arrays.asList(nodes), requests.get(0));
+            long waitMillis = Math.min(config.getWritableWaitTimeout(), timeoutMillis);
+            if (!connection.awaitWritable(waitMillis)) {
+                throw new ConnectionException("connection is unwritable, node: " + connection.getRemoteAddress(),
+                        connection.getRemoteAddress());
+            }
+        } catch (Exception e) {
+            logger.error("batch send error", e);
+            boolean unavailable = e instanceof ConnectionException || e instanceof NodeException;
+            for (RpcRequest request : requests) {
+                futures.add(CompletableFuture.completedFuture(unavailable
+                        ? RpcResponse.serviceUnAvailable(request.getSeq())
+                        : RpcResponse.clientError(request.getSeq())));
+            }
+            return futures;
+        }
+
+        CommandBatch batch = new CommandBatch(requests.size());
+        List<RpcRequest> sent = new ArrayList<>(requests.size());
+        for (RpcRequest request : requests) {
+            if (RpcContext.isExpired(request.getDeadline())) {
+                futures.add(CompletableFuture.completedFuture(RpcResponse.requestExpired(request.getSeq())));
+                continue;
+            }
+            if (!connection.acquireInFlight(config.getMaxInFlightPerConnection())) {
+                futures.add(CompletableFuture.completedFuture(RpcResponse.serviceUnAvailable(request.getSeq())));
+                continue;
+            }
+            long remaining = Math.max(request.getDeadline() - System.currentTimeMillis(), 1L);
+            ResponseFuture responseFuture =
+                    new ResponseFuture(request.getSeq(), remaining, connection.getRemoteAddress(), null);
+            responseMapping.putResponseFuture(request.getSeq(), responseFuture);
+            responseFuture.getFuture().whenComplete((response, throwable) -> connection.releaseInFlight());
+            futures.add(responseFuture.getFuture());
+            batch.add(request);
+            sent.add(request);
         }
-        if (!sendAsync) {
-            // 等待并获取响应
-            response = responseFuture.waitForResponse();
+        if (sent.isEmpty()) {
+            return futures;
         }
-        return response;
+        try {
+            connection.send(batch);
+        } catch (Exception e) {
+            for (RpcRequest request : sent) {
+                ResponseFuture responseFuture = responseMapping.getResponseFuture(request.getSeq());
+                if (responseFuture != null) {
+                    // 以客户端异常完成，同时释放在途名额
+                    responseFuture.setRpcResponse(RpcResponse.clientError(request.getSeq()));
+                    responseFuture.receipt();
+                }
+            }
+            logger.error("batch send error", e);
+        }
+        return futures;
     }
 
     private ResponseFuture sendCommand(RpcRequest request, List<HostAndPort> nodes,
-                                       RpcCallback callback, Integer requestTimeout) {
+                                       RpcCallback callback, long timeoutMillis) {
         // 获取连接
         IConnection connection = getConnection(nodes, request);
-        // 发送请求
-        return sendCommand(request, connection, callback, requestTimeout);
+        // 超过高水位时在限定时间内等待恢复可写，超时快速失败
+        long waitMillis = Math.min(config.getWritableWaitTimeout(), timeoutMillis);
+        if (!connection.awaitWritable(waitMillis)) {
+            throw new ConnectionException("connection is unwritable, node: " + connection.getRemoteAddress(),
+                    connection.getRemoteAddress());
+        }
+        // 连接选择已优先在途请求最少的连接，仍达到上限说明该节点所有连接都已满，快速失败
+        if (!connection.acquireInFlight(config.getMaxInFlightPerConnection())) {
+            throw new ConnectionException("too many in-flight requests, node: " + connection.getRemoteAddress()
+                    + ", inFlight: " + connection.getInFlight(), connection.getRemoteAddress());
+        }
+        ResponseFuture responseFuture;
+        try {
+            // 发送请求
+            responseFuture = sendCommand(request, connection, callback, timeoutMillis);
+        } catch (Exception e) {
+            connection.releaseInFlight();
+            throw e;
+        }
+        // 收到响应或超时后释放在途名额
+        responseFuture.getFuture().whenComplete((response, throwable) -> connection.releaseInFlight());
+        return responseFuture;
     }
 
     private ResponseFuture sendCommand(Command command, IConnection connection,
-                                       RpcCallback callback, Integer requestTimeout) {
+                                       RpcCallback callback, long timeoutMillis) {
         ResponseFuture responseFuture =
-                new ResponseFuture(command.getSeq(), requestTimeout, connection.getRemoteAddress(), callback);
+                new ResponseFuture(command.getSeq(), timeoutMillis, connection.getRemoteAddress(), callback);
         responseMapping.putResponseFuture(command.getSeq(), responseFuture);
         connection.send(command);
         return responseFuture;
@@ -404,7 +984,16 @@ public class SRpcClient extends AbstractRpc implements Client {
             //若自定义了回调任务线程池则使用自定义的线程池
             callBackTaskThreadPool = callBackTaskThreadPoolImpl.getCallBackTaskThreadPool();
             logger.info("Use the custom callBackTaskThreadPool [{}]", callBackTaskThreadPool.getClass().getCanonicalName());
-        } else {
+        } else if (config.isVirtualThreadEnable()) {
+            // 每个回调任务一个虚拟线程，并发数由信号量限制
+            callBackTaskThreadPool = VirtualThreadExecutor.create("sRpc-client-business",
+                    config.getVirtualThreadMaxConcurrency(), config.isVirtualThreadPinnedTrace());
+            if (callBackTaskThreadPool != null) {
+                logger.info("Use virtual threads for callback tasks, max concurrency: {}",
+                        config.getVirtualThreadMaxConcurrency());
+            }
+        }
+        if (callBackTaskThreadPool == null && callBackTaskThreadPoolImpl == null) {
             if (config.getCallBackTaskThreads() != null && config.getCallBackTaskThreads() > 0) {
                 Integer coreThreads = config.getCallBackTaskThreads();
                 Integer queueSize = config.getCallBackTaskQueueSize();
@@ -424,7 +1013,16 @@ public class SRpcClient extends AbstractRpc implements Client {
             Executors.newSingleThreadScheduledExecutor(SRpcThreadFactory.getDefault())
                     .scheduleAtFixedRate(new NodeHealthCheckTask(nodeManager), 0, config.getNodeHealthCheckTimeInterval(), TimeUnit.SECONDS);
         }
-        responseMapping = new ResponseMapping(config.getRequestTimeout());
+        responseMapping = new ResponseMapping();
+        hedgePolicy = new HedgePolicy(config.getHedgeBudgetPercent());
+        retryPolicy = ExtensionLoader.getExtensionLoader(RetryPolicy.class).getExtension(config.getRetryPolicy());
+        Serializer serializer =
+                ExtensionLoader.getExtensionLoader(Serializer.class).getExtension(config.getSerializeType().getName());
+        resultCache = new ResultCache(serializer, config.getResultCacheMaxSize(),
+                callBackTaskThreadPool != null ? callBackTaskThreadPool : ForkJoinPool.commonPool());
+        singleFlight = new SingleFlight(serializer);
+        defaultTimeoutMillis = config.getRequestTimeoutMillis() != null && config.getRequestTimeoutMillis() > 0
+                ? config.getRequestTimeoutMillis() : TimeUnit.SECONDS.toMillis(config.getRequestTimeout());
     }
 
     private void assertNodesNotNull(HostAndPort[] nodes) {
@@ -452,6 +1050,40 @@ public class SRpcClient extends AbstractRpc implements Client {
         responseMapping.invalidate(command.getSeq());
     }
 
+    /**
+     * 一次调用的参数及重试状态，同一时刻只在一个线程中访问
+     */
+    private class Invocation {
+        private final String mapping;
+        private final Object[] args;
+        private final HostAndPort[] nodes;
+        private final long timeoutMillis;
+        private final long hedgeDelayMillis;
+        private final int retryTimes;
+        private final long retryBackoffMillis;
+        private final RequestBudget retryBudget;
+        private HostAndPort[] candidates;
+        private int attempt;
+
+        Invocation(String mapping, Object[] args, HostAndPort[] nodes, CallOptions options, String serviceName) {
+            this.mapping = mapping;
+            this.args = args;
+            this.nodes = nodes;
+            this.candidates = nodes;
+            this.timeoutMillis = timeoutMillis(options);
+            this.hedgeDelayMillis = hedgeDelayMillis(options);
+            this.retryTimes = options == null ? 0 : options.getRetryTimes();
+            this.retryBackoffMillis = options != null && options.getRetryBackoffMillis() > 0
+                    ? options.getRetryBackoffMillis() : config.getRetryBackoffMillis();
+            if (retryTimes > 0) {
+                this.retryBudget = retryBudget(serviceName, nodes);
+                this.retryBudget.onRequest();
+            } else {
+                this.retryBudget = null;
+            }
+        }
+    }
+
     /**
      * Rpc客户端channel
      */
@@ -468,14 +1100,22 @@ public class SRpcClient extends AbstractRpc implements Client {
             if (null != sslContext) {
                 pipeline.addLast(defaultEventExecutorGroup, "sslHandler", sslContext.newHandler(ch.alloc()));
             }
+            // 开启握手时协商完成前使用v1，兼容未升级的服务端
+            byte version = config.isHandshakeEnable() ? RpcConstant.VERSION_V1 : config.getProtocolVersion().byteValue();
+            // 合并flush，出站时处理编码后的帧
+            if (config.isFlushConsolidationEnable()) {
+                pipeline.addLast(defaultEventExecutorGroup, "flushConsolidationHandler",
+                        new BatchFlushHandler(config.getFlushConsolidationCount(),
+                                config.getFlushConsolidationBytes(), config.isFrameBatchEnable()));
+            }
             // 添加压缩编解码
             pipeline.addLast(
                     defaultEventExecutorGroup,
                     new RpcPacketDecoder(),
-                    new RpcPacketEncoder(config.getCompressType(), config.getSerializeType()),
+                    new RpcPacketEncoder(config.getCompressType(), config.getSerializeType(), compressPolicy, version),
 
                     new IdleStateHandler(config.getConnectionIdleTime(), config.getConnectionIdleTime(), 0),
-                    new NettyClientConnManageHandler(nodeManager),
+                    new NettyClientConnManageHandler(nodeManager, config),
                     new ClientProcessHandler(nodeManager, responseMapping, config));
         }
     }
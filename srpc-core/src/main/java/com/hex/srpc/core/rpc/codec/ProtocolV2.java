@@ -0,0 +1,111 @@
+package com.hex.srpc.core.rpc.codec;
+
+import com.hex.common.exception.DecoderException;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.AttributeKey;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author: hs
+ * <p>
+ * v2协议帧格式，前9个字节与v1相同:
+ * <pre>
+ * magic(2) | version(1) | serializer/compress(1) | isRequest(1) | length(4)
+ * | seq(8) | flags(1) | methodId/status(4) | [deadline(8)] | [mapping] | [header] | body
+ * </pre>
+ * 批量帧:
+ * <pre>
+ * magic(2) | version(1) | serializer/none(1) | isRequest(1) | length(4) | 0(8) | BATCH(1) | count(4)
+ * | serializer/compress(1) | isRequest(1) | length(4) | seq(8) | ... | ...
+ * </pre>
+ * 请求帧第三个字段为方法id，响应帧为响应状态码。
+ * deadline为发送时请求的剩余时间(毫秒)，接收端据此换算为本地截止时间，不依赖两端时钟一致。
+ * 方法id在连接内协商：某个mapping在连接上首次出现时带上MAPPING标记及mapping字符串，
+ * 对端记录id与mapping的对应关系，之后该连接上只传输4字节的方法id。
+ * 消息体为{@link com.hex.srpc.core.protocol.CommandBody}，压缩只作用于消息体
+ */
+public final class ProtocolV2 {
+
+    /**
+     * 连接当前使用的协议版本，收到对端的帧后更新，编码时优先使用
+     */
+    public static final AttributeKey<Byte> PROTOCOL_VERSION = AttributeKey.valueOf("PROTOCOL_VERSION");
+
+    /**
+     * 心跳包
+     */
+    public static final int FLAG_HEARTBEAT = 0x01;
+
+    /**
+     * 携带请求剩余时间
+     */
+    public static final int FLAG_DEADLINE = 0x02;
+
+    /**
+     * 携带mapping字符串
+     */
+    public static final int FLAG_MAPPING = 0x04;
+
+    /**
+     * 携带扩展头部信息
+     */
+    public static final int FLAG_HEADER = 0x08;
+
+    /**
+     * 批量帧，methodId位置为子帧数量，其后为去掉魔数和版本号的v2子帧
+     */
+    public static final int FLAG_BATCH = 0x10;
+
+    /**
+     * 批量帧长度字段之后的头部长度：seq(8) + flags(1) + count(4)
+     */
+    public static final int BATCH_HEADER_LENGTH = 13;
+
+    /**
+     * 不使用方法id，每次都携带mapping字符串
+     */
+    public static final int NO_METHOD_ID = 0;
+
+    /**
+     * 单个连接最多协商的方法id数量，超出后直接携带mapping字符串
+     */
+    public static final int MAX_METHOD_IDS = 4096;
+
+    private ProtocolV2() {
+    }
+
+    /**
+     * 是否为批量帧
+     *
+     * @param payload 长度字段之后的帧内容
+     */
+    public static boolean isBatch(ByteBuf payload) {
+        return payload.readableBytes() >= BATCH_HEADER_LENGTH
+                && (payload.getByte(payload.readerIndex() + 8) & FLAG_BATCH) != 0;
+    }
+
+    /**
+     * 写入短字符串，长度使用2字节无符号数
+     */
+    public static void writeString(ByteBuf out, String value) {
+        int lengthIndex = out.writerIndex();
+        out.writeShort(0);
+        int length = out.writeCharSequence(value, StandardCharsets.UTF_8);
+        if (length > 0xffff) {
+            throw new IllegalArgumentException("string too long: " + length);
+        }
+        out.setShort(lengthIndex, length);
+    }
+
+    /**
+     * 读取短字符串
+     */
+    public static String readString(ByteBuf in) {
+        int length = in.readUnsignedShort();
+        if (length > in.readableBytes()) {
+            throw new DecoderException("string length out of bounds: " + length);
+        }
+        return in.readCharSequence(length, StandardCharsets.UTF_8).toString();
+    }
+}
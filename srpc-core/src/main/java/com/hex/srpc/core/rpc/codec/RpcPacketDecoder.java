@@ -6,7 +6,10 @@ import com.hex.common.constant.SerializeType;
 import com.hex.common.exception.DecoderException;
 import com.hex.common.spi.ExtensionLoader;
 import com.hex.common.utils.ByteUtil;
+import com.hex.srpc.core.connection.Connection;
 import com.hex.srpc.core.protocol.Command;
+import com.hex.srpc.core.protocol.CommandBatch;
+import com.hex.srpc.core.protocol.CommandBody;
 import com.hex.srpc.core.protocol.RpcRequest;
 import com.hex.srpc.core.protocol.RpcResponse;
 import com.hex.srpc.core.rpc.compress.Compress;
@@ -14,12 +17,18 @@ import com.hex.srpc.core.rpc.serialize.Serializer;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.util.Attribute;
 import io.netty.util.ReferenceCountUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * @author: hs
+ * <p>
+ * 同时支持v1及v2协议帧，v2帧格式见{@link ProtocolV2}
  */
 public class RpcPacketDecoder extends LengthFieldBasedFrameDecoder {
     private static final Logger logger = LoggerFactory.getLogger(RpcPacketDecoder.class);
@@ -27,6 +36,11 @@ public class RpcPacketDecoder extends LengthFieldBasedFrameDecoder {
     private ExtensionLoader<Serializer> serializerLoader;
     private ExtensionLoader<Compress> compressLoader;
 
+    /**
+     * 对端协商的方法id，解码器与连接一一对应，只在所属的executor线程中访问
+     */
+    private final Map<Integer, String> methodMappings = new HashMap<>();
+
     public RpcPacketDecoder() {
         this(RpcConstant.MAX_FRAME_LENGTH, 5, 4);
     }
@@ -47,18 +61,11 @@ public class RpcPacketDecoder extends LengthFieldBasedFrameDecoder {
             //校验魔数
             checkMagicNumber(ctx, frame);
             //校验版本
-            checkVersion(ctx, frame);
+            byte version = checkVersion(ctx, frame);
 
             short readByte = frame.readUnsignedByte();
-
-            String serializeType = SerializeType.getName(ByteUtil.getHeight4(readByte));
-            if (serializeType == null) {
-                throw new DecoderException("unSupport serialize type");
-            }
-            String compressType = CompressType.getName(ByteUtil.getLow4(readByte));
-            if (compressType == null) {
-                throw new DecoderException("unSupport compress type");
-            }
+            String serializeType = serializeType(readByte);
+            String compressType = compressType(readByte);
 
             boolean isRequest = frame.readBoolean();
 
@@ -66,16 +73,25 @@ public class RpcPacketDecoder extends LengthFieldBasedFrameDecoder {
             if (length <= 0) {
                 return null;
             }
-
-            byte[] bytes = new byte[length];
-            frame.readBytes(bytes);
-            byte[] decompress = compressLoader.getExtension(compressType).decompress(bytes);
+            // 未握手时记录对端协议版本，编码时使用相同版本回复
+            Attribute<Byte> versionAttr = ctx.channel().attr(ProtocolV2.PROTOCOL_VERSION);
+            if (ctx.channel().attr(Connection.HANDSHAKE).get() == null
+                    && !Byte.valueOf(version).equals(versionAttr.get())) {
+                versionAttr.set(version);
+            }
 
             Command command;
-            if (isRequest) {
-                command = serializerLoader.getExtension(serializeType).deserialize(decompress, RpcRequest.class);
+            if (version == RpcConstant.VERSION_V1) {
+                // 直接在帧内存上解压和反序列化，不产生中间字节数组
+                ByteBuf body = frame.readSlice(length);
+                command = (Command) readBody(ctx, body, serializeType, compressType,
+                        isRequest ? RpcRequest.class : RpcResponse.class);
             } else {
-                command = serializerLoader.getExtension(serializeType).deserialize(decompress, RpcResponse.class);
+                ByteBuf payload = frame.readSlice(length);
+                if (ProtocolV2.isBatch(payload)) {
+                    return decodeBatch(ctx, payload);
+                }
+                command = decodeV2(ctx, payload, serializeType, compressType, isRequest);
             }
             command.setRequest(isRequest);
             return command;
@@ -87,6 +103,123 @@ public class RpcPacketDecoder extends LengthFieldBasedFrameDecoder {
         }
     }
 
+    /**
+     * 解析v2帧，帧头为二进制编码，消息体只包含参数或响应内容
+     */
+    private Command decodeV2(ChannelHandlerContext ctx, ByteBuf frame, String serializeType, String compressType,
+                             boolean isRequest) throws Exception {
+        long seq = frame.readLong();
+        int flags = frame.readUnsignedByte();
+        int methodIdOrStatus = frame.readInt();
+        // 帧中为剩余时间，转换为本端的截止时间
+        Long deadline = (flags & ProtocolV2.FLAG_DEADLINE) != 0
+                ? System.currentTimeMillis() + frame.readLong() : null;
+        String mapping = (flags & ProtocolV2.FLAG_MAPPING) != 0 ? ProtocolV2.readString(frame) : null;
+        String header = (flags & ProtocolV2.FLAG_HEADER) != 0 ? ProtocolV2.readString(frame) : null;
+
+        CommandBody body = frame.isReadable()
+                ? (CommandBody) readBody(ctx, frame, serializeType, compressType, CommandBody.class)
+                : null;
+
+        Command command;
+        if (isRequest) {
+            mapping = resolveMapping(ctx, methodIdOrStatus, mapping);
+            RpcRequest request = new RpcRequest();
+            request.setDeadline(deadline);
+            request.setArgs(body == null ? null : body.getArgs());
+            command = request;
+        } else {
+            RpcResponse response = new RpcResponse();
+            response.setStatus(methodIdOrStatus == 0 ? null : methodIdOrStatus);
+            response.setBody(body == null ? null : body.getResult());
+            command = response;
+        }
+        command.setSeq(seq);
+        command.setMapping(mapping);
+        command.setHeader(header);
+        command.setHeartBeat((flags & ProtocolV2.FLAG_HEARTBEAT) != 0);
+        return command;
+    }
+
+    /**
+     * 解析批量帧，每个子帧为去掉魔数和版本号的v2帧
+     */
+    private CommandBatch decodeBatch(ChannelHandlerContext ctx, ByteBuf payload) throws Exception {
+        payload.skipBytes(ProtocolV2.BATCH_HEADER_LENGTH - 4);
+        int count = payload.readInt();
+        CommandBatch batch = new CommandBatch(count);
+        for (int i = 0; i < count; i++) {
+            short readByte = payload.readUnsignedByte();
+            boolean isRequest = payload.readBoolean();
+            int length = payload.readInt();
+            Command command = decodeV2(ctx, payload.readSlice(length), serializeType(readByte), compressType(readByte),
+                    isRequest);
+            command.setRequest(isRequest);
+            batch.add(command);
+        }
+        return batch;
+    }
+
+    private String serializeType(short readByte) {
+        String serializeType = SerializeType.getName(ByteUtil.getHeight4(readByte));
+        if (serializeType == null) {
+            throw new DecoderException("unSupport serialize type");
+        }
+        return serializeType;
+    }
+
+    private String compressType(short readByte) {
+        // 低4位为帧级压缩标记，NONE表示该帧未压缩，与本端配置的压缩算法无关
+        String compressType = CompressType.getName(ByteUtil.getLow4(readByte));
+        if (compressType == null) {
+            throw new DecoderException("unSupport compress type");
+        }
+        return compressType;
+    }
+
+    /**
+     * 根据方法id获取mapping，首次出现的方法id会携带mapping字符串
+     * 对端按1..MAX_METHOD_IDS依次分配方法id，超出范围、跳号或重定义为其他mapping时关闭连接，避免方法id表无限增长
+     */
+    private String resolveMapping(ChannelHandlerContext ctx, int methodId, String mapping) {
+        if (methodId == ProtocolV2.NO_METHOD_ID) {
+            return mapping;
+        }
+        if (methodId < 0 || methodId > ProtocolV2.MAX_METHOD_IDS) {
+            ctx.close();
+            throw new DecoderException("method id out of range: " + methodId);
+        }
+        String existing = methodMappings.get(methodId);
+        if (mapping == null) {
+            if (existing == null) {
+                throw new DecoderException("unknown method id: " + methodId);
+            }
+            return existing;
+        }
+        if (existing == null) {
+            if (methodId != methodMappings.size() + 1) {
+                ctx.close();
+                throw new DecoderException("unexpected new method id: " + methodId + ", expected: "
+                        + (methodMappings.size() + 1));
+            }
+            methodMappings.put(methodId, mapping);
+        } else if (!existing.equals(mapping)) {
+            ctx.close();
+            throw new DecoderException("method id " + methodId + " is already defined as " + existing);
+        }
+        return mapping;
+    }
+
+    private Object readBody(ChannelHandlerContext ctx, ByteBuf body, String serializeType, String compressType,
+                            Class<?> clazz) throws Exception {
+        ByteBuf decompress = compressLoader.getExtension(compressType).decompress(body, ctx.alloc());
+        try {
+            return serializerLoader.getExtension(serializeType).deserialize(decompress, clazz);
+        } finally {
+            ReferenceCountUtil.release(decompress);
+        }
+    }
+
     private void checkMagicNumber(ChannelHandlerContext ctx, ByteBuf in) {
         short magicNumber = in.readShort();
         if (magicNumber != RpcConstant.MAGIC_NUMBER) {
@@ -95,12 +228,13 @@ public class RpcPacketDecoder extends LengthFieldBasedFrameDecoder {
         }
     }
 
-    private void checkVersion(ChannelHandlerContext ctx, ByteBuf in) {
-        int version = in.readUnsignedByte();
-        if (version != RpcConstant.VERSION) {
+    private byte checkVersion(ChannelHandlerContext ctx, ByteBuf in) {
+        byte version = in.readByte();
+        if (version != RpcConstant.VERSION && version != RpcConstant.VERSION_V1) {
             ctx.close();
             throw new DecoderException("version isn't compatible" + version);
         }
+        return version;
     }
 
 }
@@ -5,8 +5,15 @@ import com.hex.common.constant.RpcConstant;
 import com.hex.common.constant.SerializeType;
 import com.hex.common.exception.EncoderException;
 import com.hex.common.spi.ExtensionLoader;
+import com.hex.srpc.core.connection.Connection;
 import com.hex.srpc.core.protocol.Command;
+import com.hex.srpc.core.protocol.CommandBatch;
+import com.hex.srpc.core.protocol.CommandBody;
+import com.hex.srpc.core.protocol.Handshake;
+import com.hex.srpc.core.protocol.RpcRequest;
+import com.hex.srpc.core.protocol.RpcResponse;
 import com.hex.srpc.core.rpc.compress.Compress;
+import com.hex.srpc.core.rpc.compress.CompressPolicy;
 import com.hex.srpc.core.rpc.serialize.Serializer;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
@@ -14,51 +21,351 @@ import io.netty.handler.codec.MessageToByteEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * @author: hs
+ * <p>
+ * 按连接协商的协议版本编码，v2帧格式见{@link ProtocolV2}
+ * 批量调用的多个指令({@link CommandBatch})编码到同一个缓冲区中一次写出
  */
-public class RpcPacketEncoder extends MessageToByteEncoder<Command> {
+public class RpcPacketEncoder extends MessageToByteEncoder<Object> {
     private static final Logger logger = LoggerFactory.getLogger(RpcPacketEncoder.class);
 
+    /**
+     * 长度字段的位置：magic(2) + version(1) + type(1) + isRequest(1)
+     */
+    private static final int LENGTH_FIELD_OFFSET = 5;
+
+    /**
+     * 批量帧子帧数量的位置：长度字段之后的seq(8) + flags(1)
+     */
+    private static final int BATCH_COUNT_OFFSET = LENGTH_FIELD_OFFSET + RpcConstant.LENGTH_FIELD_LENGTH + 9;
+
     private CompressType compressType;
     private Compress compress;
     private SerializeType serializerType;
     private Serializer serializer;
+    private CompressPolicy compressPolicy;
+    private byte defaultVersion;
+    private final ExtensionLoader<Compress> compressLoader = ExtensionLoader.getExtensionLoader(Compress.class);
+    private final ExtensionLoader<Serializer> serializerLoader = ExtensionLoader.getExtensionLoader(Serializer.class);
+
+    /**
+     * 本连接已协商的方法id，编码器与连接一一对应，只在所属的executor线程中访问
+     */
+    private final Map<String, Integer> methodIds = new HashMap<>();
 
     public RpcPacketEncoder(CompressType compressType, SerializeType serializerType) {
+        this(compressType, serializerType, new CompressPolicy(0, false));
+    }
+
+    public RpcPacketEncoder(CompressType compressType, SerializeType serializerType, CompressPolicy compressPolicy) {
+        this(compressType, serializerType, compressPolicy, RpcConstant.VERSION_V1);
+    }
+
+    /**
+     * @param defaultVersion 未收到对端的帧之前使用的协议版本
+     */
+    public RpcPacketEncoder(CompressType compressType, SerializeType serializerType, CompressPolicy compressPolicy,
+                            byte defaultVersion) {
         this.compressType = compressType;
         this.serializerType = serializerType;
+        this.compressPolicy = compressPolicy;
+        this.defaultVersion = defaultVersion;
         setCompress();
         setSerializer();
     }
 
     @Override
-    protected void encode(ChannelHandlerContext ctx, Command command, ByteBuf out) throws Exception {
+    public boolean acceptOutboundMessage(Object msg) {
+        return msg instanceof Command || msg instanceof CommandBatch;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, Object msg, ByteBuf out) throws Exception {
         try {
+            Handshake handshake = ctx.channel().attr(Connection.HANDSHAKE).get();
+            if (msg instanceof CommandBatch) {
+                encodeBatch(ctx, handshake, ((CommandBatch) msg).getCommands(), out);
+                return;
+            }
+            int frameStart = out.writerIndex();
+            String newMapping = encodeFrame(ctx, handshake, (Command) msg, out, false);
+            checkFrameLength(handshake, out.writerIndex() - frameStart);
+
+            // 帧编码成功后才记录方法id，避免对端收不到定义
+            if (newMapping != null) {
+                methodIds.put(newMapping, methodIds.size() + 1);
+            }
+        } catch (Exception e) {
+            logger.error("frame encode failed", e);
+            throw new EncoderException();
+        }
+    }
+
+    /**
+     * 编码一个帧
+     *
+     * @param subFrame 是否为批量帧的子帧，子帧不写魔数和版本号
+     * @return 本帧新协商的mapping，无则为null
+     */
+    private String encodeFrame(ChannelHandlerContext ctx, Handshake handshake, Command command, ByteBuf out,
+                               boolean subFrame) throws Exception {
+        // 握手完成后按协商结果编码，否则沿用对端版本及本端配置
+        byte version;
+        CompressType compressType = this.compressType;
+        Compress compress = this.compress;
+        SerializeType serializerType = this.serializerType;
+        Serializer serializer = this.serializer;
+        if (handshake != null) {
+            version = handshake.getVersion();
+            if (handshake.getCompressType() != compressType) {
+                compressType = handshake.getCompressType();
+                compress = compressLoader.getExtension(compressType.getName());
+            }
+            if (handshake.getSerializeType() != serializerType) {
+                serializerType = handshake.getSerializeType();
+                serializer = serializerLoader.getExtension(serializerType.getName());
+            }
+        } else {
+            Byte peerVersion = ctx.channel().attr(ProtocolV2.PROTOCOL_VERSION).get();
+            version = peerVersion != null ? peerVersion : defaultVersion;
+        }
+
+        if (!subFrame) {
             out.writeShort(RpcConstant.MAGIC_NUMBER);
-            out.writeByte(RpcConstant.VERSION);
+            out.writeByte(version);
+        }
+
+        // 类型字段低4位即帧级压缩标记，未压缩的帧写入NONE，解码端按帧解压
+        int typeIndex = out.writerIndex();
+        out.writeByte(typeByte(serializerType, CompressType.NONE));
+        out.writeBoolean(command.isRequest());
 
-            out.writeByte((byte) (serializerType.getCode() << 4 | compressType.getCode() & 0xff));
-            out.writeBoolean(command.isRequest());
+        // 长度字段占位，写完消息体后回填
+        int lengthIndex = out.writerIndex();
+        out.writeInt(0);
 
-            byte[] serializeBytes = serializer.serialize(command);
-            byte[] compressBytes = this.compress.compress(serializeBytes);
-            out.writeInt(compressBytes.length);
+        Object body;
+        String newMapping = null;
+        if (version == RpcConstant.VERSION_V1) {
+            body = command;
+        } else {
+            newMapping = writeHeaderV2(command, out);
+            body = bodyV2(command);
+        }
+
+        if (compressType == CompressType.NONE) {
+            serializer.serialize(body, out);
+        } else {
+            // 先序列化到池化的临时缓冲区，再按策略决定是否压缩写入out
+            ByteBuf serialized = ctx.alloc().buffer();
+            try {
+                serializer.serialize(body, serialized);
+                if (compress(command, compress, serialized, out)) {
+                    out.setByte(typeIndex, typeByte(serializerType, compressType));
+                }
+            } finally {
+                serialized.release();
+            }
+        }
+        out.setInt(lengthIndex, out.writerIndex() - lengthIndex - RpcConstant.LENGTH_FIELD_LENGTH);
+        return newMapping;
+    }
 
-            out.writeBytes(compressBytes);
+    /**
+     * 多个指令一次编码写出
+     * 对端握手支持批量帧时编码为批量帧，超过最大帧长度时拆分为多个批量帧，否则依次编码为普通帧。
+     * 同一批次中新协商的方法id立即记录供后续子帧使用，编码失败时撤销
+     */
+    private void encodeBatch(ChannelHandlerContext ctx, Handshake handshake, List<Command> commands, ByteBuf out)
+            throws Exception {
+        List<String> recorded = new ArrayList<>();
+        try {
+            if (commands.size() < 2 || handshake == null || handshake.getVersion() == RpcConstant.VERSION_V1
+                    || !handshake.hasFeature(Handshake.FEATURE_BATCH)) {
+                for (Command command : commands) {
+                    int frameStart = out.writerIndex();
+                    String newMapping = encodeFrame(ctx, handshake, command, out, false);
+                    checkFrameLength(handshake, out.writerIndex() - frameStart);
+                    record(newMapping, recorded);
+                }
+                return;
+            }
+            int batchStart = writeBatchHeader(out, handshake, commands.get(0));
+            int count = 0;
+            for (Command command : commands) {
+                int frameStart = out.writerIndex();
+                record(encodeFrame(ctx, handshake, command, out, true), recorded);
+                if (count > 0 && out.writerIndex() - batchStart > handshake.getMaxFrameLength()) {
+                    // 结束当前批量帧，该子帧移到新的批量帧中
+                    int frameLength = out.writerIndex() - frameStart;
+                    ByteBuf subFrame = ctx.alloc().buffer(frameLength);
+                    try {
+                        subFrame.writeBytes(out, frameStart, frameLength);
+                        out.writerIndex(frameStart);
+                        finishBatch(out, batchStart, count);
+                        batchStart = writeBatchHeader(out, handshake, command);
+                        out.writeBytes(subFrame);
+                    } finally {
+                        subFrame.release();
+                    }
+                    count = 0;
+                }
+                checkFrameLength(handshake, out.writerIndex() - batchStart);
+                count++;
+            }
+            finishBatch(out, batchStart, count);
         } catch (Exception e) {
-            logger.error("frame encode failed", e);
-            throw new EncoderException();
+            for (String mapping : recorded) {
+                methodIds.remove(mapping);
+            }
+            throw e;
         }
     }
 
+    private void record(String newMapping, List<String> recorded) {
+        if (newMapping != null) {
+            methodIds.put(newMapping, methodIds.size() + 1);
+            recorded.add(newMapping);
+        }
+    }
+
+    /**
+     * 写入批量帧头，长度及子帧数量在结束时回填，帧格式见{@link ProtocolV2}
+     *
+     * @return 批量帧的起始位置
+     */
+    private int writeBatchHeader(ByteBuf out, Handshake handshake, Command first) {
+        int batchStart = out.writerIndex();
+        out.writeShort(RpcConstant.MAGIC_NUMBER);
+        out.writeByte(handshake.getVersion());
+        out.writeByte(typeByte(handshake.getSerializeType(), CompressType.NONE));
+        out.writeBoolean(first.isRequest());
+        out.writeInt(0);
+        out.writeLong(0L);
+        out.writeByte(ProtocolV2.FLAG_BATCH);
+        out.writeInt(0);
+        return batchStart;
+    }
+
+    private void finishBatch(ByteBuf out, int batchStart, int count) {
+        int lengthIndex = batchStart + LENGTH_FIELD_OFFSET;
+        out.setInt(lengthIndex, out.writerIndex() - lengthIndex - RpcConstant.LENGTH_FIELD_LENGTH);
+        out.setInt(batchStart + BATCH_COUNT_OFFSET, count);
+    }
+
+    private void checkFrameLength(Handshake handshake, int frameLength) {
+        if (handshake != null && frameLength > handshake.getMaxFrameLength()) {
+            // 超过对端可接收的最大帧长度，直接失败，避免对端关闭连接
+            throw new EncoderException("frame length exceeds the negotiated max frame length: " + frameLength);
+        }
+    }
+
+    /**
+     * 写入v2二进制帧头
+     *
+     * @return 本帧新协商的mapping，无则为null
+     */
+    private String writeHeaderV2(Command command, ByteBuf out) {
+        out.writeLong(command.getSeq() == null ? 0L : command.getSeq());
+        int flagsIndex = out.writerIndex();
+        out.writeByte(0);
+
+        int flags = command.isHeartBeat() ? ProtocolV2.FLAG_HEARTBEAT : 0;
+        String newMapping = null;
+        String mapping = null;
+        Long deadline = null;
+        if (command instanceof RpcRequest) {
+            RpcRequest request = (RpcRequest) command;
+            deadline = request.getDeadline();
+            int methodId = ProtocolV2.NO_METHOD_ID;
+            if (request.getMapping() != null) {
+                Integer id = methodIds.get(request.getMapping());
+                if (id != null) {
+                    methodId = id;
+                } else {
+                    mapping = request.getMapping();
+                    if (methodIds.size() < ProtocolV2.MAX_METHOD_IDS) {
+                        newMapping = mapping;
+                        methodId = methodIds.size() + 1;
+                    }
+                }
+            }
+            out.writeInt(methodId);
+        } else {
+            Integer status = ((RpcResponse) command).getStatus();
+            out.writeInt(status == null ? 0 : status);
+        }
+
+        if (deadline != null) {
+            flags |= ProtocolV2.FLAG_DEADLINE;
+            // 传输剩余时间而非时间戳，避免两端时钟不一致
+            out.writeLong(Math.max(deadline - System.currentTimeMillis(), 0L));
+        }
+        if (mapping != null) {
+            flags |= ProtocolV2.FLAG_MAPPING;
+            ProtocolV2.writeString(out, mapping);
+        }
+        if (command.getHeader() != null) {
+            flags |= ProtocolV2.FLAG_HEADER;
+            ProtocolV2.writeString(out, command.getHeader());
+        }
+        out.setByte(flagsIndex, flags);
+        return newMapping;
+    }
+
+    private Object bodyV2(Command command) {
+        CommandBody body = new CommandBody();
+        if (command instanceof RpcRequest) {
+            body.setArgs(((RpcRequest) command).getArgs());
+        } else {
+            body.setResult(((RpcResponse) command).getBody());
+        }
+        return body;
+    }
+
+    /**
+     * 压缩写入out，小包或压缩无收益时直接写入原始数据
+     *
+     * @return 是否已压缩
+     */
+    private boolean compress(Command command, Compress compress, ByteBuf serialized, ByteBuf out) throws Exception {
+        int length = serialized.readableBytes();
+        if (!compressPolicy.shouldCompress(command.getMapping(), length)) {
+            out.writeBytes(serialized);
+            return false;
+        }
+        int readerIndex = serialized.readerIndex();
+        int writerIndex = out.writerIndex();
+        long start = compressPolicy.isAdaptive() ? System.nanoTime() : 0L;
+        compress.compress(serialized, out);
+        int compressedLength = out.writerIndex() - writerIndex;
+        if (compressPolicy.isAdaptive()) {
+            compressPolicy.record(command.getMapping(), length, compressedLength, System.nanoTime() - start);
+        }
+        if (compressedLength >= length) {
+            // 压缩后反而更大，回退为原始数据
+            out.writerIndex(writerIndex);
+            out.writeBytes(serialized, readerIndex, length);
+            return false;
+        }
+        return true;
+    }
+
+    private byte typeByte(SerializeType serializerType, CompressType compressType) {
+        return (byte) (serializerType.getCode() << 4 | compressType.getCode() & 0xff);
+    }
+
     private void setCompress() {
-        ExtensionLoader<Compress> compressLoader = ExtensionLoader.getExtensionLoader(Compress.class);
         this.compress = compressLoader.getExtension(compressType.getName());
     }
 
     private void setSerializer() {
-        ExtensionLoader<Serializer> serializerLoader = ExtensionLoader.getExtensionLoader(Serializer.class);
         this.serializer = serializerLoader.getExtension(serializerType.getName());
     }
 }
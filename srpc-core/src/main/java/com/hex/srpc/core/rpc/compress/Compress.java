@@ -1,6 +1,10 @@
 package com.hex.srpc.core.rpc.compress;
 
 import com.hex.common.annotation.SPI;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 
 import java.io.IOException;
 
@@ -18,6 +22,19 @@ public interface Compress {
      */
     byte[] compress(byte[] bytes) throws IOException;
 
+    /**
+     * 压缩ByteBuf的可读区域并写入out，读取后in的readerIndex移动到writerIndex
+     * 默认实现会先拷贝为字节数组，支持直接操作ByteBuf的压缩算法需覆盖该方法
+     *
+     * @param in  原始数据
+     * @param out 压缩结果写出目标
+     */
+    default void compress(ByteBuf in, ByteBuf out) throws IOException {
+        byte[] bytes = new byte[in.readableBytes()];
+        in.readBytes(bytes);
+        out.writeBytes(compress(bytes));
+    }
+
     /**
      * 解压
      *
@@ -26,4 +43,16 @@ public interface Compress {
      */
     byte[] decompress(byte[] bytes) throws IOException;
 
+    /**
+     * 解压ByteBuf的可读区域，结果由调用方负责release
+     * 默认实现会先拷贝为字节数组，支持直接操作ByteBuf的压缩算法需覆盖该方法
+     *
+     * @param in        压缩后的数据
+     * @param allocator 解压结果的内存分配器
+     * @return 原始数据
+     */
+    default ByteBuf decompress(ByteBuf in, ByteBufAllocator allocator) throws IOException {
+        return Unpooled.wrappedBuffer(decompress(ByteBufUtil.getBytes(in)));
+    }
+
 }
@@ -0,0 +1,168 @@
+package com.hex.srpc.core.rpc.compress;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * @author: hs
+ * <p>
+ * 压缩上下文，每个线程持有一份
+ * 复用压缩器/解压器及临时缓冲区，获取时自动reset，避免每次压缩都创建Deflater/Inflater等持有native内存的对象。
+ * 上下文数量与编解码线程数一致，native内存占用有上限
+ */
+public final class CompressContext {
+
+    private static final ThreadLocal<CompressContext> CONTEXT = new ThreadLocal<>();
+
+    /**
+     * 已创建且未release的上下文数量
+     */
+    private static final AtomicInteger LIVE_CONTEXTS = new AtomicInteger();
+
+    /**
+     * 临时缓冲区默认大小
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 2048;
+
+    /**
+     * 输出流超过该容量后不再复用，避免偶发的大包长期占用内存
+     */
+    private static final int MAX_RETAINED_CAPACITY = 256 * 1024;
+
+    private final Map<Integer, Deflater> deflaters = new HashMap<>(4);
+    private final Map<Boolean, Inflater> inflaters = new HashMap<>(4);
+    private final Map<Object, Object> resources = new HashMap<>(4);
+    private final CRC32 crc32 = new CRC32();
+    private final byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+    private ReusableOutputStream outputStream = new ReusableOutputStream();
+
+    private CompressContext() {
+    }
+
+    /**
+     * 获取当前线程的压缩上下文
+     */
+    public static CompressContext current() {
+        CompressContext context = CONTEXT.get();
+        if (context == null) {
+            context = new CompressContext();
+            CONTEXT.set(context);
+            LIVE_CONTEXTS.incrementAndGet();
+        }
+        return context;
+    }
+
+    /**
+     * 释放当前线程持有的native资源，线程结束前可调用，当前线程没有上下文时直接返回
+     */
+    public static void release() {
+        CompressContext context = CONTEXT.get();
+        if (context == null) {
+            return;
+        }
+        for (Deflater deflater : context.deflaters.values()) {
+            deflater.end();
+        }
+        for (Inflater inflater : context.inflaters.values()) {
+            inflater.end();
+        }
+        CONTEXT.remove();
+        LIVE_CONTEXTS.decrementAndGet();
+    }
+
+    /**
+     * 已创建且未release的上下文数量，线程未调用release就结束时其上下文仍计入
+     */
+    public static int liveContexts() {
+        return LIVE_CONTEXTS.get();
+    }
+
+    /**
+     * 获取已reset的Deflater
+     *
+     * @param level  压缩级别
+     * @param nowrap 是否不带zlib头
+     */
+    public Deflater deflater(int level, boolean nowrap) {
+        Integer key = (level << 1) | (nowrap ? 1 : 0);
+        Deflater deflater = deflaters.get(key);
+        if (deflater == null) {
+            deflater = new Deflater(level, nowrap);
+            deflaters.put(key, deflater);
+        } else {
+            deflater.reset();
+        }
+        return deflater;
+    }
+
+    /**
+     * 获取已reset的Inflater
+     *
+     * @param nowrap 是否不带zlib头
+     */
+    public Inflater inflater(boolean nowrap) {
+        Inflater inflater = inflaters.get(nowrap);
+        if (inflater == null) {
+            inflater = new Inflater(nowrap);
+            inflaters.put(nowrap, inflater);
+        } else {
+            inflater.reset();
+        }
+        return inflater;
+    }
+
+    /**
+     * 获取已reset的CRC32
+     */
+    public CRC32 crc32() {
+        crc32.reset();
+        return crc32;
+    }
+
+    /**
+     * 获取临时缓冲区，大小为DEFAULT_BUFFER_SIZE
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * 获取已reset的输出流，结果通过toByteArray获取
+     */
+    public ByteArrayOutputStream outputStream() {
+        if (outputStream.capacity() > MAX_RETAINED_CAPACITY) {
+            outputStream = new ReusableOutputStream();
+        } else {
+            outputStream.reset();
+        }
+        return outputStream;
+    }
+
+    /**
+     * 获取其他可复用的压缩资源，不存在时创建
+     *
+     * @param key     资源标识
+     * @param factory 资源创建方法
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T resource(Object key, Supplier<T> factory) {
+        return (T) resources.computeIfAbsent(key, k -> factory.get());
+    }
+
+    static class ReusableOutputStream extends ByteArrayOutputStream {
+
+        ReusableOutputStream() {
+            super(DEFAULT_BUFFER_SIZE);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+}
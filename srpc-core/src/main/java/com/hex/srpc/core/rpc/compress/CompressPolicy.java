@@ -0,0 +1,123 @@
+package com.hex.srpc.core.rpc.compress;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author: hs
+ * <p>
+ * 帧级压缩策略
+ * 消息体小于阈值时不压缩；开启自适应后按mapping统计压缩率及每节省一个字节的耗时，
+ * 收益不足时关闭该mapping的压缩，并定期抽样压缩以便负载变化后重新开启
+ */
+public class CompressPolicy {
+
+    /**
+     * 前若干帧总是压缩，用于积累统计
+     */
+    private static final int WARM_UP_FRAMES = 16;
+
+    /**
+     * 关闭压缩后每隔多少帧抽样压缩一次
+     */
+    private static final int PROBE_INTERVAL = 128;
+
+    /**
+     * 压缩后大小/原始大小超过该比例视为无收益
+     */
+    private static final double MAX_RATIO = 0.9D;
+
+    /**
+     * 每节省一个字节耗时超过该值(纳秒)视为无收益
+     */
+    private static final double MAX_NANOS_PER_SAVED_BYTE = 100D;
+
+    /**
+     * 统计平滑系数
+     */
+    private static final double ALPHA = 0.2D;
+
+    /**
+     * 统计的mapping数量上限，超出后不再新增统计
+     */
+    private static final int MAX_TRACKED_MAPPINGS = 4096;
+
+    private static final String NO_MAPPING = "";
+
+    private final int threshold;
+    private final boolean adaptive;
+    private final ConcurrentMap<String, Stats> statsMap = new ConcurrentHashMap<>();
+
+    public CompressPolicy(Integer threshold, boolean adaptive) {
+        this.threshold = threshold == null ? 0 : Math.max(threshold, 0);
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * 判断该帧是否需要压缩
+     *
+     * @param mapping 消息对应的mapping
+     * @param length  序列化后的消息体长度
+     */
+    public boolean shouldCompress(String mapping, int length) {
+        if (length < threshold) {
+            return false;
+        }
+        if (!adaptive) {
+            return true;
+        }
+        Stats stats = stats(mapping);
+        if (stats == null) {
+            return true;
+        }
+        long frames = stats.frames.incrementAndGet();
+        return frames <= WARM_UP_FRAMES || stats.enabled || frames % PROBE_INTERVAL == 0;
+    }
+
+    /**
+     * 记录一次压缩结果，仅自适应模式生效
+     *
+     * @param mapping          消息对应的mapping
+     * @param length           原始长度
+     * @param compressedLength 压缩后长度
+     * @param costNanos        压缩耗时
+     */
+    public void record(String mapping, int length, int compressedLength, long costNanos) {
+        if (!adaptive || length <= 0) {
+            return;
+        }
+        Stats stats = stats(mapping);
+        if (stats == null) {
+            return;
+        }
+        double ratio = (double) compressedLength / length;
+        int saved = length - compressedLength;
+        double nanosPerSavedByte = saved > 0 ? (double) costNanos / saved : MAX_NANOS_PER_SAVED_BYTE * 10;
+        // 并发更新存在覆盖，统计值仅用于估算，无需加锁
+        stats.ratio = stats.ratio < 0 ? ratio : stats.ratio + ALPHA * (ratio - stats.ratio);
+        stats.nanosPerSavedByte = stats.nanosPerSavedByte < 0 ? nanosPerSavedByte
+                : stats.nanosPerSavedByte + ALPHA * (nanosPerSavedByte - stats.nanosPerSavedByte);
+        stats.enabled = stats.ratio <= MAX_RATIO && stats.nanosPerSavedByte <= MAX_NANOS_PER_SAVED_BYTE;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    private Stats stats(String mapping) {
+        String key = mapping == null ? NO_MAPPING : mapping;
+        Stats stats = statsMap.get(key);
+        if (stats == null && statsMap.size() < MAX_TRACKED_MAPPINGS) {
+            stats = statsMap.computeIfAbsent(key, k -> new Stats());
+        }
+        return stats;
+    }
+
+    private static class Stats {
+        private final AtomicLong frames = new AtomicLong();
+        private volatile double ratio = -1;
+        private volatile double nanosPerSavedByte = -1;
+        private volatile boolean enabled = true;
+    }
+}
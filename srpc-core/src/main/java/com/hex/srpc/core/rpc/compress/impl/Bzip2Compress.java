@@ -1,6 +1,7 @@
 package com.hex.srpc.core.rpc.compress.impl;
 
 import com.hex.srpc.core.rpc.compress.Compress;
+import com.hex.srpc.core.rpc.compress.CompressContext;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
 
@@ -12,12 +13,13 @@ import java.io.IOException;
  * @author: hs
  * <p>
  * Bzip2压缩
+ * bzip2流不支持重置，只复用输出流和临时缓冲区
  */
 public class Bzip2Compress implements Compress {
 
     @Override
     public byte[] compress(byte[] bytes) throws IOException {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream out = CompressContext.current().outputStream();
         try (BZip2CompressorOutputStream bcos = new BZip2CompressorOutputStream(out);) {
             bcos.write(bytes);
         }
@@ -26,11 +28,12 @@ public class Bzip2Compress implements Compress {
 
     @Override
     public byte[] decompress(byte[] bytes) throws IOException {
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream();
-             ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+        CompressContext context = CompressContext.current();
+        ByteArrayOutputStream out = context.outputStream();
+        byte[] buffer = context.buffer();
+        try (ByteArrayInputStream in = new ByteArrayInputStream(bytes);
              BZip2CompressorInputStream ungzip = new BZip2CompressorInputStream(in);
         ) {
-            byte[] buffer = new byte[2048];
             int n;
             while ((n = ungzip.read(buffer)) >= 0) {
                 out.write(buffer, 0, n);
@@ -1,6 +1,7 @@
 package com.hex.srpc.core.rpc.compress.impl;
 
 import com.hex.srpc.core.rpc.compress.Compress;
+import com.hex.srpc.core.rpc.compress.CompressContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,44 +13,48 @@ import java.util.zip.Inflater;
 
 /**
  * @author: hs
+ * <p>
+ * Deflater压缩，Deflater/Inflater由CompressContext按线程复用
  */
 public class DeflaterCompress implements Compress {
     private static final Logger logger = LoggerFactory.getLogger(DeflaterCompress.class);
 
+    private static final int LEVEL = 4;
+
     @Override
     public byte[] compress(byte[] bytes) throws IOException {
-        Deflater compressor = new Deflater(4);
-        try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        ) {
-            compressor.setInput(bytes);
-            compressor.finish();
-            final byte[] buf = new byte[2048];
-            while (!compressor.finished()) {
-                int count = compressor.deflate(buf);
-                bos.write(buf, 0, count);
-            }
-            return bos.toByteArray();
-        } finally {
-            compressor.end();
+        CompressContext context = CompressContext.current();
+        Deflater compressor = context.deflater(LEVEL, false);
+        ByteArrayOutputStream bos = context.outputStream();
+        byte[] buf = context.buffer();
+
+        compressor.setInput(bytes);
+        compressor.finish();
+        while (!compressor.finished()) {
+            int count = compressor.deflate(buf);
+            bos.write(buf, 0, count);
         }
+        return bos.toByteArray();
     }
 
     @Override
     public byte[] decompress(byte[] bytes) throws IOException {
-        Inflater decompressor = new Inflater();
-        try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        ) {
+        CompressContext context = CompressContext.current();
+        Inflater decompressor = context.inflater(false);
+        ByteArrayOutputStream bos = context.outputStream();
+        byte[] buf = context.buffer();
+        try {
             decompressor.setInput(bytes);
-            final byte[] buf = new byte[2048];
             while (!decompressor.finished()) {
                 int count = decompressor.inflate(buf);
+                if (count == 0 && (decompressor.needsInput() || decompressor.needsDictionary())) {
+                    throw new DataFormatException("unexpected end of deflate stream");
+                }
                 bos.write(buf, 0, count);
             }
             return bos.toByteArray();
         } catch (DataFormatException e) {
             logger.error(e.getMessage(), e);
-        } finally {
-            decompressor.end();
         }
         return new byte[0];
     }
@@ -1,40 +1,140 @@
 package com.hex.srpc.core.rpc.compress.impl;
 
 import com.hex.srpc.core.rpc.compress.Compress;
+import com.hex.srpc.core.rpc.compress.CompressContext;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
 
 /**
  * @author: hs
  * <p>
  * Gzip压缩
+ * 直接按gzip格式写入头/尾，压缩数据使用线程复用的Deflater/Inflater，与GZIPInputStream/GZIPOutputStream格式兼容
  */
 public class GzipCompress implements Compress {
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int HEADER_LENGTH = 10;
+    private static final int TRAILER_LENGTH = 8;
+
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private static final byte[] HEADER = {
+            (byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0
+    };
+
     @Override
     public byte[] compress(byte[] bytes) throws IOException {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        try (GZIPOutputStream gzip = new GZIPOutputStream(out);) {
-            gzip.write(bytes);
+        CompressContext context = CompressContext.current();
+        Deflater deflater = context.deflater(Deflater.DEFAULT_COMPRESSION, true);
+        ByteArrayOutputStream out = context.outputStream();
+        byte[] buffer = context.buffer();
+
+        out.write(HEADER);
+        deflater.setInput(bytes);
+        deflater.finish();
+        while (!deflater.finished()) {
+            int count = deflater.deflate(buffer);
+            out.write(buffer, 0, count);
         }
+        CRC32 crc = context.crc32();
+        crc.update(bytes);
+        writeIntLE(out, (int) crc.getValue());
+        writeIntLE(out, bytes.length);
         return out.toByteArray();
     }
 
     @Override
     public byte[] decompress(byte[] bytes) throws IOException {
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream();
-             ByteArrayInputStream in = new ByteArrayInputStream(bytes);
-        ) {
-            GZIPInputStream ungzip = new GZIPInputStream(in);
-            byte[] buffer = new byte[2048];
-            int n;
-            while ((n = ungzip.read(buffer)) >= 0) {
-                out.write(buffer, 0, n);
+        CompressContext context = CompressContext.current();
+        Inflater inflater = context.inflater(true);
+        ByteArrayOutputStream out = context.outputStream();
+        byte[] buffer = context.buffer();
+        CRC32 crc = context.crc32();
+
+        int offset = readHeader(bytes);
+        inflater.setInput(bytes, offset, bytes.length - offset);
+        try {
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new EOFException("Unexpected end of ZLIB input stream");
+                }
+                out.write(buffer, 0, count);
+                crc.update(buffer, 0, count);
             }
-            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        }
+
+        int trailer = bytes.length - inflater.getRemaining();
+        if (trailer + TRAILER_LENGTH > bytes.length
+                || readIntLE(bytes, trailer) != (int) crc.getValue()
+                || readIntLE(bytes, trailer + 4) != (int) inflater.getBytesWritten()) {
+            throw new ZipException("Corrupt GZIP trailer");
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 解析gzip头，返回压缩数据起始位置
+     */
+    private int readHeader(byte[] bytes) throws IOException {
+        if (bytes.length < HEADER_LENGTH + TRAILER_LENGTH) {
+            throw new EOFException("Unexpected end of GZIP input stream");
         }
+        if (((bytes[0] & 0xff) | ((bytes[1] & 0xff) << 8)) != GZIP_MAGIC) {
+            throw new ZipException("Not in GZIP format");
+        }
+        if (bytes[2] != Deflater.DEFLATED) {
+            throw new ZipException("Unsupported compression method");
+        }
+        int flags = bytes[3] & 0xff;
+        int offset = HEADER_LENGTH;
+        try {
+            if ((flags & FEXTRA) == FEXTRA) {
+                offset += ((bytes[offset] & 0xff) | ((bytes[offset + 1] & 0xff) << 8)) + 2;
+            }
+            if ((flags & FNAME) == FNAME) {
+                while (bytes[offset++] != 0) {
+                    // 跳过文件名
+                }
+            }
+            if ((flags & FCOMMENT) == FCOMMENT) {
+                while (bytes[offset++] != 0) {
+                    // 跳过注释
+                }
+            }
+            if ((flags & FHCRC) == FHCRC) {
+                offset += 2;
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new EOFException("Unexpected end of GZIP input stream");
+        }
+        return offset;
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >> 8);
+        out.write(value >> 16);
+        out.write(value >> 24);
+    }
+
+    private static int readIntLE(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff)
+                | ((bytes[offset + 1] & 0xff) << 8)
+                | ((bytes[offset + 2] & 0xff) << 16)
+                | ((bytes[offset + 3] & 0xff) << 24);
     }
 }
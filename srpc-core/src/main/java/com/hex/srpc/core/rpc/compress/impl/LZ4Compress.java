@@ -1,6 +1,11 @@
 package com.hex.srpc.core.rpc.compress.impl;
 
 import com.hex.srpc.core.rpc.compress.Compress;
+import com.hex.srpc.core.rpc.compress.CompressContext;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import net.jpountz.lz4.LZ4BlockInputStream;
 import net.jpountz.lz4.LZ4BlockOutputStream;
 import net.jpountz.lz4.LZ4Compressor;
@@ -15,15 +20,20 @@ import java.io.IOException;
  * @author: hs
  * <p>
  * LZ4压缩
+ * LZ4Factory及压缩器/解压器线程安全，全局共享一份
  */
 public class LZ4Compress implements Compress {
 
+    private static final int BLOCK_SIZE = 2048;
+
+    private static final LZ4Factory FACTORY = LZ4Factory.fastestInstance();
+    private static final LZ4Compressor COMPRESSOR = FACTORY.fastCompressor();
+    private static final LZ4FastDecompressor DECOMPRESSOR = FACTORY.fastDecompressor();
+
     @Override
     public byte[] compress(byte[] bytes) throws IOException {
-        LZ4Factory factory = LZ4Factory.fastestInstance();
-        ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
-        LZ4Compressor compressor = factory.fastCompressor();
-        try (LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(byteOutput, 2048, compressor)) {
+        ByteArrayOutputStream byteOutput = CompressContext.current().outputStream();
+        try (LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(byteOutput, BLOCK_SIZE, COMPRESSOR)) {
             compressedOutput.write(bytes);
         }
         return byteOutput.toByteArray();
@@ -31,18 +41,37 @@ public class LZ4Compress implements Compress {
 
     @Override
     public byte[] decompress(byte[] bytes) throws IOException {
-        LZ4Factory factory = LZ4Factory.fastestInstance();
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        LZ4FastDecompressor decompresser = factory.fastDecompressor();
-
-        try (LZ4BlockInputStream lzis = new LZ4BlockInputStream(new ByteArrayInputStream(bytes), decompresser);) {
+        CompressContext context = CompressContext.current();
+        ByteArrayOutputStream baos = context.outputStream();
+        byte[] buffer = context.buffer();
+        try (LZ4BlockInputStream lzis = new LZ4BlockInputStream(new ByteArrayInputStream(bytes), DECOMPRESSOR);) {
             int count;
-            byte[] buffer = new byte[2048];
             while ((count = lzis.read(buffer)) != -1) {
                 baos.write(buffer, 0, count);
             }
         }
-
         return baos.toByteArray();
     }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) throws IOException {
+        try (LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(new ByteBufOutputStream(out), BLOCK_SIZE, COMPRESSOR)) {
+            in.readBytes(compressedOutput, in.readableBytes());
+        }
+    }
+
+    @Override
+    public ByteBuf decompress(ByteBuf in, ByteBufAllocator allocator) throws IOException {
+        // 解压结果直接写入池化内存
+        ByteBuf out = allocator.buffer(in.readableBytes() << 1);
+        try (LZ4BlockInputStream lzis = new LZ4BlockInputStream(new ByteBufInputStream(in.duplicate()), DECOMPRESSOR)) {
+            while (out.writeBytes(lzis, BLOCK_SIZE) > 0) {
+                // 读取至流结束
+            }
+            return out;
+        } catch (IOException | RuntimeException e) {
+            out.release();
+            throw e;
+        }
+    }
 }
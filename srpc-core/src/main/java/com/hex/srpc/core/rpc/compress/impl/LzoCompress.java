@@ -1,6 +1,7 @@
 package com.hex.srpc.core.rpc.compress.impl;
 
 import com.hex.srpc.core.rpc.compress.Compress;
+import com.hex.srpc.core.rpc.compress.CompressContext;
 import org.anarres.lzo.LzoAlgorithm;
 import org.anarres.lzo.LzoCompressor;
 import org.anarres.lzo.LzoDecompressor;
@@ -14,13 +15,20 @@ import java.io.IOException;
 
 /**
  * @author: hs
+ * <p>
+ * LZO压缩，压缩器/解压器由CompressContext按线程复用
  */
 public class LzoCompress implements Compress {
 
+    private static final String COMPRESSOR_KEY = LzoCompress.class.getName() + ".compressor";
+    private static final String DECOMPRESSOR_KEY = LzoCompress.class.getName() + ".decompressor";
+
     @Override
     public byte[] compress(byte[] bytes) throws IOException {
-        LzoCompressor compressor = LzoLibrary.getInstance().newCompressor(LzoAlgorithm.LZO1X, null);
-        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        CompressContext context = CompressContext.current();
+        LzoCompressor compressor = context.resource(COMPRESSOR_KEY,
+                () -> LzoLibrary.getInstance().newCompressor(LzoAlgorithm.LZO1X, null));
+        ByteArrayOutputStream os = context.outputStream();
         try (LzoOutputStream cs = new LzoOutputStream(os, compressor);) {
             cs.write(bytes);
         }
@@ -29,13 +37,15 @@ public class LzoCompress implements Compress {
 
     @Override
     public byte[] decompress(byte[] bytes) throws IOException {
-        LzoDecompressor decompressor = LzoLibrary.getInstance().newDecompressor(LzoAlgorithm.LZO1X, null);
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-             ByteArrayInputStream is = new ByteArrayInputStream(bytes);
+        CompressContext context = CompressContext.current();
+        LzoDecompressor decompressor = context.resource(DECOMPRESSOR_KEY,
+                () -> LzoLibrary.getInstance().newDecompressor(LzoAlgorithm.LZO1X, null));
+        ByteArrayOutputStream baos = context.outputStream();
+        byte[] buffer = context.buffer();
+        try (ByteArrayInputStream is = new ByteArrayInputStream(bytes);
              LzoInputStream us = new LzoInputStream(is, decompressor);
         ) {
             int count;
-            byte[] buffer = new byte[2048];
             while ((count = us.read(buffer)) != -1) {
                 baos.write(buffer, 0, count);
             }
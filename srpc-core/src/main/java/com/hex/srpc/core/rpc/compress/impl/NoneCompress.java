@@ -1,6 +1,8 @@
 package com.hex.srpc.core.rpc.compress.impl;
 
 import com.hex.srpc.core.rpc.compress.Compress;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 
 /**
  * @author: hs
@@ -17,4 +19,14 @@ public class NoneCompress implements Compress {
     public byte[] decompress(byte[] bytes) {
         return bytes;
     }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        out.writeBytes(in);
+    }
+
+    @Override
+    public ByteBuf decompress(ByteBuf in, ByteBufAllocator allocator) {
+        return in.retainedSlice();
+    }
 }
@@ -1,9 +1,12 @@
 package com.hex.srpc.core.rpc.compress.impl;
 
 import com.hex.srpc.core.rpc.compress.Compress;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import org.xerial.snappy.Snappy;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * @author: hs
@@ -19,4 +22,64 @@ public class SnappyCompress implements Compress {
     public byte[] decompress(byte[] bytes) throws IOException {
         return Snappy.uncompress(bytes);
     }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) throws IOException {
+        int maxLength = Snappy.maxCompressedLength(in.readableBytes());
+        out.ensureWritable(maxLength);
+        int n;
+        if (in.hasArray() && out.hasArray()) {
+            n = Snappy.compress(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes(),
+                    out.array(), out.arrayOffset() + out.writerIndex());
+        } else if (in.isDirect() && in.nioBufferCount() == 1 && out.isDirect() && out.nioBufferCount() == 1) {
+            n = Snappy.compress(in.nioBuffer(), out.nioBuffer(out.writerIndex(), maxLength));
+        } else {
+            Compress.super.compress(in, out);
+            return;
+        }
+        in.skipBytes(in.readableBytes());
+        out.writerIndex(out.writerIndex() + n);
+    }
+
+    @Override
+    public ByteBuf decompress(ByteBuf in, ByteBufAllocator allocator) throws IOException {
+        if (in.hasArray()) {
+            return decompressHeap(in, allocator);
+        }
+        if (in.isDirect() && in.nioBufferCount() == 1) {
+            return decompressDirect(in, allocator);
+        }
+        return Compress.super.decompress(in, allocator);
+    }
+
+    private ByteBuf decompressHeap(ByteBuf in, ByteBufAllocator allocator) throws IOException {
+        byte[] src = in.array();
+        int offset = in.arrayOffset() + in.readerIndex();
+        int length = in.readableBytes();
+        int uncompressedLength = Snappy.uncompressedLength(src, offset, length);
+        ByteBuf out = allocator.heapBuffer(uncompressedLength);
+        try {
+            int n = Snappy.uncompress(src, offset, length, out.array(), out.arrayOffset() + out.writerIndex());
+            out.writerIndex(out.writerIndex() + n);
+            return out;
+        } catch (IOException | RuntimeException e) {
+            out.release();
+            throw e;
+        }
+    }
+
+    private ByteBuf decompressDirect(ByteBuf in, ByteBufAllocator allocator) throws IOException {
+        ByteBuffer src = in.nioBuffer();
+        int uncompressedLength = Snappy.uncompressedLength(src);
+        ByteBuf out = allocator.directBuffer(uncompressedLength);
+        try {
+            ByteBuffer dst = out.nioBuffer(out.writerIndex(), uncompressedLength);
+            int n = Snappy.uncompress(src, dst);
+            out.writerIndex(out.writerIndex() + n);
+            return out;
+        } catch (IOException | RuntimeException e) {
+            out.release();
+            throw e;
+        }
+    }
 }
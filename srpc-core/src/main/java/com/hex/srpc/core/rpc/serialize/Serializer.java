@@ -1,6 +1,8 @@
 package com.hex.srpc.core.rpc.serialize;
 
 import com.hex.common.annotation.SPI;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 
 /**
  * @author: hs
@@ -16,6 +18,17 @@ public interface Serializer {
      */
     byte[] serialize(Object object);
 
+    /**
+     * 序列化并直接写入ByteBuf
+     * 默认实现会先序列化为字节数组，支持直接写入的序列化方式需覆盖该方法
+     *
+     * @param object 实体对象
+     * @param out    写出目标
+     */
+    default void serialize(Object object, ByteBuf out) {
+        out.writeBytes(serialize(object));
+    }
+
     /**
      * 反序列化
      *
@@ -25,4 +38,17 @@ public interface Serializer {
      * @return 实体对象
      */
     <T> T deserialize(byte[] bytes, Class<T> clazz);
+
+    /**
+     * 直接从ByteBuf的可读区域反序列化，不改变readerIndex
+     * 默认实现会先拷贝为字节数组，支持零拷贝的序列化方式需覆盖该方法
+     *
+     * @param in    序列化后的数据
+     * @param clazz clazz
+     * @param <T>   类型
+     * @return 实体对象
+     */
+    default <T> T deserialize(ByteBuf in, Class<T> clazz) {
+        return deserialize(ByteBufUtil.getBytes(in), clazz);
+    }
 }
@@ -1,12 +1,15 @@
 package com.hex.srpc.core.rpc.serialize.impl;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.ByteBufferInput;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.pool.KryoFactory;
 import com.esotericsoftware.kryo.pool.KryoPool;
 import com.hex.common.exception.SerializeException;
 import com.hex.srpc.core.rpc.serialize.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
 import org.objenesis.strategy.StdInstantiatorStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +37,15 @@ public class KryoSerializer implements Serializer {
         ((Kryo.DefaultInstantiatorStrategy) kryo.getInstantiatorStrategy()).setFallbackInstantiatorStrategy(new StdInstantiatorStrategy());
         return kryo;
     });
+    /**
+     * 反序列化ByteBuf时复用的Input，避免每次创建
+     */
+    private static final ThreadLocal<Input> inputs = ThreadLocal.withInitial(Input::new);
+    private static final ThreadLocal<ByteBufferInput> byteBufferInputs = ThreadLocal.withInitial(ByteBufferInput::new);
+    /**
+     * 序列化到ByteBuf时复用的Output，缓冲区写满后刷入ByteBuf
+     */
+    private static final ThreadLocal<Output> outputs = ThreadLocal.withInitial(() -> new Output(4096));
     /**
      * （池化Kryo实例）使用KryoPool
      */
@@ -64,6 +76,32 @@ public class KryoSerializer implements Serializer {
         return new byte[0];
     }
 
+    /**
+     * 使用ThreadLocal创建Kryo
+     * 把java对象直接序列化到ByteBuf
+     *
+     * @param obj java对象
+     * @param out 写出目标
+     */
+    @Override
+    public void serialize(Object obj, ByteBuf out) {
+        if (null == obj) {
+            return;
+        }
+        Kryo kryo = kryos.get();
+        Output output = outputs.get();
+        output.setOutputStream(new ByteBufOutputStream(out));
+        try {
+            kryo.writeObject(output, obj);
+            output.flush();
+        } catch (Exception e) {
+            logger.error("Kryo serialize failed", e);
+            throw new SerializeException();
+        } finally {
+            output.setOutputStream(null);
+        }
+    }
+
     /**
      * 使用ThreadLocal创建Kryo
      * 把byte[]反序列化成指定的java对象
@@ -86,4 +124,33 @@ public class KryoSerializer implements Serializer {
         }
         return null;
     }
+
+    /**
+     * 使用ThreadLocal创建Kryo
+     * 直接从ByteBuf反序列化成指定的java对象，堆内存读取底层数组，堆外内存使用ByteBufferInput
+     *
+     * @param in    序列化后的数据
+     * @param clazz 指定的java对象
+     * @return 指定的java对象
+     */
+    @Override
+    public <T> T deserialize(ByteBuf in, Class<T> clazz) {
+        if (null != in && in.isReadable() && null != clazz) {
+            Kryo kryo = kryos.get();
+            try {
+                if (in.hasArray()) {
+                    Input input = inputs.get();
+                    input.setBuffer(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes());
+                    return kryo.readObject(input, clazz);
+                }
+                ByteBufferInput input = byteBufferInputs.get();
+                input.setBuffer(in.nioBuffer());
+                return kryo.readObject(input, clazz);
+            } catch (Exception e) {
+                logger.error("Kryo deserialize failed", e);
+                throw new SerializeException();
+            }
+        }
+        return null;
+    }
 }
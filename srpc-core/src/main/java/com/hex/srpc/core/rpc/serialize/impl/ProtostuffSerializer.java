@@ -1,13 +1,19 @@
 package com.hex.srpc.core.rpc.serialize.impl;
 
+import com.hex.common.exception.SerializeException;
 import com.hex.srpc.core.rpc.serialize.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.protostuff.ByteBufferInput;
 import io.protostuff.LinkedBuffer;
 import io.protostuff.ProtostuffIOUtil;
 import io.protostuff.Schema;
 import io.protostuff.runtime.RuntimeSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.Map;
-import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -16,15 +22,21 @@ import java.util.concurrent.ConcurrentHashMap;
  * Protostuff序列化
  */
 public class ProtostuffSerializer implements Serializer {
+    private static final Logger logger = LoggerFactory.getLogger(ProtostuffSerializer.class);
 
     /**
      * 缓存Schema
      */
     private static Map<Class<?>, Schema<?>> schemaCache = new ConcurrentHashMap<>();
 
+    /**
+     * 每个线程复用一个LinkedBuffer，使用后需clear
+     */
+    private static final ThreadLocal<LinkedBuffer> buffers = ThreadLocal.withInitial(LinkedBuffer::allocate);
+
     @Override
     public byte[] serialize(Object object) {
-        LinkedBuffer buffer = LinkedBuffer.allocate();
+        LinkedBuffer buffer = buffers.get();
         try {
             Schema schema = getSchema(object.getClass());
             return ProtostuffIOUtil.toByteArray(object, schema, buffer);
@@ -33,6 +45,20 @@ public class ProtostuffSerializer implements Serializer {
         }
     }
 
+    @Override
+    public void serialize(Object object, ByteBuf out) {
+        LinkedBuffer buffer = buffers.get();
+        try {
+            Schema schema = getSchema(object.getClass());
+            ProtostuffIOUtil.writeTo(new ByteBufOutputStream(out), object, schema, buffer);
+        } catch (IOException e) {
+            logger.error("Protostuff serialize failed", e);
+            throw new SerializeException();
+        } finally {
+            buffer.clear();
+        }
+    }
+
     @Override
     public <T> T deserialize(byte[] bytes, Class<T> clazz) {
         Schema<T> schema = (Schema<T>) getSchema(clazz);
@@ -41,6 +67,28 @@ public class ProtostuffSerializer implements Serializer {
         return obj;
     }
 
+    /**
+     * 堆内存直接读取底层数组，堆外内存通过ByteBufferInput读取，均不产生拷贝
+     */
+    @Override
+    public <T> T deserialize(ByteBuf in, Class<T> clazz) {
+        Schema<T> schema = (Schema<T>) getSchema(clazz);
+        T obj = schema.newMessage();
+        if (in.hasArray()) {
+            ProtostuffIOUtil.mergeFrom(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes(), obj, schema);
+            return obj;
+        }
+        try {
+            ByteBufferInput input = new ByteBufferInput(in.nioBuffer(), true);
+            schema.mergeFrom(input, obj);
+            input.checkLastTagWas(0);
+        } catch (IOException e) {
+            logger.error("Protostuff deserialize failed", e);
+            throw new SerializeException();
+        }
+        return obj;
+    }
+
     private static Schema<?> getSchema(Class<?> clazz) {
         return schemaCache.computeIfAbsent(clazz, k -> RuntimeSchema.getSchema(clazz));
     }
@@ -7,6 +7,7 @@ import com.hex.common.exception.RpcException;
 import com.hex.common.net.HostAndPort;
 import com.hex.common.spi.ExtensionLoader;
 import com.hex.common.thread.SRpcThreadFactory;
+import com.hex.common.thread.VirtualThreadExecutor;
 import com.hex.common.utils.NetUtil;
 import com.hex.common.utils.ThreadUtil;
 import com.hex.registry.ServicePublisher;
@@ -14,6 +15,7 @@ import com.hex.srpc.core.config.SRpcServerConfig;
 import com.hex.srpc.core.extension.DefaultDuplicateMarker;
 import com.hex.srpc.core.extension.DuplicatedMarker;
 import com.hex.srpc.core.handler.connection.NettyServerConnManagerHandler;
+import com.hex.srpc.core.handler.flush.BatchFlushHandler;
 import com.hex.srpc.core.handler.process.ServerProcessHandler;
 import com.hex.srpc.core.node.INodeManager;
 import com.hex.srpc.core.node.NodeManager;
@@ -22,6 +24,7 @@ import com.hex.srpc.core.rpc.AbstractRpc;
 import com.hex.srpc.core.rpc.Server;
 import com.hex.srpc.core.rpc.codec.RpcPacketDecoder;
 import com.hex.srpc.core.rpc.codec.RpcPacketEncoder;
+import com.hex.srpc.core.rpc.compress.CompressPolicy;
 import com.hex.srpc.core.rpc.task.ConnectionNumCountTask;
 import com.hex.srpc.core.thread.BusinessThreadPool;
 import io.netty.bootstrap.ServerBootstrap;
@@ -39,6 +42,7 @@ import io.netty.util.concurrent.DefaultEventExecutorGroup;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -55,11 +59,12 @@ public class SRpcServer extends AbstractRpc implements Server {
     private EventLoopGroup eventLoopGroupBoss;
     private EventLoopGroup eventLoopGroupSelector;
     private DefaultEventExecutorGroup defaultEventExecutorGroup;
-    private ThreadPoolExecutor businessThreadPool;
+    private ExecutorService businessThreadPool;
     private INodeManager nodeManager = new NodeManager(false);
     private AtomicBoolean isServerStart = new AtomicBoolean(false);
     private ServicePublisher servicePublisher;
     private DuplicatedMarker duplicatedMarker;
+    private CompressPolicy compressPolicy;
     private Integer port;
 
     private SRpcServer() {
@@ -129,7 +134,16 @@ public class SRpcServer extends AbstractRpc implements Server {
             //若自定义了业务线程池则使用自定义的线程池
             businessThreadPool = customBusinessThreadPool.getBusinessThreadPool();
             logger.info("Use the custom businessThreadPool [{}]", businessThreadPool.getClass().getCanonicalName());
-        } else {
+        } else if (serverConfig.isVirtualThreadEnable()) {
+            // 每个请求一个虚拟线程，并发数由信号量限制
+            businessThreadPool = VirtualThreadExecutor.create("sRpc-server-business",
+                    serverConfig.getVirtualThreadMaxConcurrency(), serverConfig.isVirtualThreadPinnedTrace());
+            if (businessThreadPool != null) {
+                logger.info("Use virtual threads for business processing, max concurrency: {}",
+                        serverConfig.getVirtualThreadMaxConcurrency());
+            }
+        }
+        if (businessThreadPool == null && customBusinessThreadPool == null) {
             if (serverConfig.getBusinessThreads() != null && serverConfig.getBusinessThreads() > 0) {
                 Integer coreThreads = serverConfig.getBusinessThreads();
                 Integer queueSize = serverConfig.getBusinessQueueSize();
@@ -200,6 +214,8 @@ public class SRpcServer extends AbstractRpc implements Server {
         }
 
         this.defaultEventExecutorGroup = new DefaultEventExecutorGroup(serverConfig.getChannelWorkerThreads());
+        // 帧压缩策略，所有连接共享统计
+        this.compressPolicy = new CompressPolicy(serverConfig.getCompressThreshold(), serverConfig.isAdaptiveCompressEnable());
         // 流控
         buildTrafficMonitor(defaultEventExecutorGroup,
                 serverConfig.isTrafficMonitorEnable(), serverConfig.getMaxReadSpeed(), serverConfig.getMaxWriteSpeed());
@@ -327,11 +343,17 @@ public class SRpcServer extends AbstractRpc implements Server {
             if (null != sslContext) {
                 pipeline.addLast(defaultEventExecutorGroup, "sslHandler", sslContext.newHandler(ch.alloc()));
             }
+            // 合并flush，出站时处理编码后的帧
+            if (serverConfig.isFlushConsolidationEnable()) {
+                pipeline.addLast(defaultEventExecutorGroup, "flushConsolidationHandler",
+                        new BatchFlushHandler(serverConfig.getFlushConsolidationCount(),
+                                serverConfig.getFlushConsolidationBytes(), serverConfig.isFrameBatchEnable()));
+            }
             // 添加压缩编解码
             pipeline.addLast(
                     defaultEventExecutorGroup,
                     new RpcPacketDecoder(),
-                    new RpcPacketEncoder(serverConfig.getCompressType(), serverConfig.getSerializeType()),
+                    new RpcPacketEncoder(serverConfig.getCompressType(), serverConfig.getSerializeType(), compressPolicy),
 
                     // 3min没收到或没发送数据则认为空闲
                     new IdleStateHandler(serverConfig.getConnectionIdleTime(), serverConfig.getConnectionIdleTime(), 0),
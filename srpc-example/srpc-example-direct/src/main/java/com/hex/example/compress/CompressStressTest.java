@@ -0,0 +1,144 @@
+package com.hex.example.compress;
+
+import com.hex.srpc.core.rpc.compress.Compress;
+import com.hex.srpc.core.rpc.compress.CompressContext;
+import com.hex.srpc.core.rpc.compress.impl.DeflaterCompress;
+import com.hex.srpc.core.rpc.compress.impl.GzipCompress;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 压缩上下文压力测试 [验证按线程复用Deflater/Inflater时native内存有上限]
+ * <p>
+ * 第一阶段：固定线程池反复压缩解压，上下文数量等于线程数，RSS应在预热后保持平稳
+ * 第二阶段：大量短生命周期线程各压缩解压一次后调用CompressContext.release()，RSS同样应保持平稳
+ * 启动参数 norelease 时第二阶段不调用release，native内存只能等待GC回收Deflater/Inflater
+ * 每个阶段结束后检查未release的上下文数量不超过线程池线程数(短线程全部release)，超过或压缩结果不一致时以退出码1结束
+ * 建议加上 -XX:NativeMemoryTracking=summary，运行中可通过 jcmd <pid> VM.native_memory summary 对照
+ */
+public class CompressStressTest {
+
+    private static final int POOL_THREADS = 16;
+    private static final int POOL_ROUNDS = 10;
+    private static final int TASKS_PER_ROUND = 20000;
+    private static final int THREAD_ROUNDS = 20;
+    private static final int THREADS_PER_ROUND = 2000;
+
+    private static final List<Compress> COMPRESSES = Arrays.asList(new DeflaterCompress(), new GzipCompress());
+    private static final byte[] PAYLOAD = payload();
+    private static final AtomicLong FAILURES = new AtomicLong();
+
+    public static void main(String[] args) throws InterruptedException {
+        boolean release = args.length == 0 || !"norelease".equals(args[0]);
+
+        System.out.println("---------------------固定线程池压缩----------------------");
+        ExecutorService pool = Executors.newFixedThreadPool(POOL_THREADS);
+        for (int round = 0; round < POOL_ROUNDS; round++) {
+            CountDownLatch latch = new CountDownLatch(TASKS_PER_ROUND);
+            for (int i = 0; i < TASKS_PER_ROUND; i++) {
+                pool.execute(() -> {
+                    roundTrip();
+                    latch.countDown();
+                });
+            }
+            latch.await();
+            report("线程池第" + round + "轮");
+        }
+        pool.shutdown();
+        boolean bounded = checkLiveContexts("线程池");
+
+        System.out.println("---------------------短生命周期线程压缩, release=" + release + "----------------------");
+        for (int round = 0; round < THREAD_ROUNDS; round++) {
+            CountDownLatch latch = new CountDownLatch(THREADS_PER_ROUND);
+            for (int i = 0; i < THREADS_PER_ROUND; i++) {
+                new Thread(() -> {
+                    try {
+                        roundTrip();
+                    } finally {
+                        if (release) {
+                            CompressContext.release();
+                        }
+                        latch.countDown();
+                    }
+                }).start();
+            }
+            latch.await();
+            report("短线程第" + round + "轮");
+        }
+        bounded &= checkLiveContexts("短线程");
+        System.out.println("失败次数: " + FAILURES.get());
+        if (FAILURES.get() > 0 || !bounded) {
+            System.out.println("压力测试未通过");
+            System.exit(1);
+        }
+        System.out.println("压力测试通过");
+    }
+
+    /**
+     * 上下文数量不超过线程池线程数时，Deflater/Inflater持有的native内存有上限
+     */
+    private static boolean checkLiveContexts(String phase) {
+        int live = CompressContext.liveContexts();
+        boolean bounded = live <= POOL_THREADS;
+        System.out.println(phase + "阶段结束: 未release的上下文=" + live + ", 上限=" + POOL_THREADS
+                + (bounded ? "" : ", 超过上限!"));
+        return bounded;
+    }
+
+    private static void roundTrip() {
+        try {
+            for (Compress compress : COMPRESSES) {
+                byte[] restored = compress.decompress(compress.compress(PAYLOAD));
+                if (!Arrays.equals(PAYLOAD, restored)) {
+                    FAILURES.incrementAndGet();
+                }
+            }
+        } catch (IOException e) {
+            FAILURES.incrementAndGet();
+        }
+    }
+
+    private static void report(String phase) {
+        Runtime runtime = Runtime.getRuntime();
+        long heapUsed = (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+        System.out.println(phase + ": RSS=" + rss() + ", heapUsed=" + heapUsed + "MB");
+    }
+
+    /**
+     * 进程常驻内存，仅Linux下可读取
+     */
+    private static String rss() {
+        Path status = Paths.get("/proc/self/status");
+        if (!Files.exists(status)) {
+            return "n/a";
+        }
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    return line.substring("VmRSS:".length()).trim();
+                }
+            }
+        } catch (IOException e) {
+            return "n/a";
+        }
+        return "n/a";
+    }
+
+    private static byte[] payload() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 512; i++) {
+            builder.append("srpc-compress-stress-").append(i).append(';');
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,144 @@
+package com.hex.srpc.processor;
+
+import com.hex.common.annotation.SRpcClient;
+import com.hex.common.annotation.SRpcRoute;
+import com.hex.common.index.SRpcIndex;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * @author: hs
+ * <p>
+ * 编译期生成路由及客户端索引，写入{@link SRpcIndex#ROUTE_INDEX_LOCATION}及{@link SRpcIndex#CLIENT_INDEX_LOCATION}
+ * 将本模块加入编译期依赖(如provided)即可生效，运行时按索引加载，无需扫描类路径
+ */
+public class SRpcIndexProcessor extends AbstractProcessor {
+
+    private final Set<String> routes = new TreeSet<>();
+    private final Set<String> clients = new TreeSet<>();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return new HashSet<>(Arrays.asList(SRpcRoute.class.getName(), SRpcClient.class.getName()));
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(SRpcRoute.class)) {
+            TypeElement type = (TypeElement) element;
+            if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+                error(type, "@SRpcRoute can not be specified on an interface or abstract");
+                continue;
+            }
+            if (type.getInterfaces().isEmpty()) {
+                error(type, "the class annotated @SRpcRoute must implement an interface");
+                continue;
+            }
+            routes.add(binaryName(type));
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(SRpcClient.class)) {
+            TypeElement type = (TypeElement) element;
+            if (type.getKind() != ElementKind.INTERFACE) {
+                error(type, "@SRpcClient can only be specified on an interface");
+                continue;
+            }
+            clients.add(binaryName(type));
+        }
+        if (roundEnv.processingOver()) {
+            writeIndex(SRpcIndex.ROUTE_INDEX_LOCATION, routes, SRpcRoute.class);
+            writeIndex(SRpcIndex.CLIENT_INDEX_LOCATION, clients, SRpcClient.class);
+        }
+        return false;
+    }
+
+    private String binaryName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    /**
+     * 增量编译时只处理变更的类，合并已有索引中仍存在且仍标注注解的类后写出
+     */
+    private void writeIndex(String location, Set<String> classNames, Class<? extends Annotation> annotation) {
+        Set<String> existing = readIndex(location);
+        if (classNames.isEmpty() && existing == null) {
+            return;
+        }
+        Set<String> merged = new TreeSet<>(classNames);
+        if (existing != null) {
+            Elements elementUtils = processingEnv.getElementUtils();
+            for (String className : existing) {
+                TypeElement type = elementUtils.getTypeElement(className.replace('$', '.'));
+                if (type != null && type.getAnnotation(annotation) != null) {
+                    merged.add(className);
+                }
+            }
+        }
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", location);
+            try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                writer.write("# Generated by SRpcIndexProcessor\n");
+                for (String className : merged) {
+                    writer.write(className);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Failed to write srpc index " + location + ": " + e);
+        }
+    }
+
+    /**
+     * 读取输出目录中已有的索引，不存在时返回null
+     */
+    private Set<String> readIndex(String location) {
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", location);
+            Set<String> classNames = new TreeSet<>();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(file.openInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        classNames.add(line);
+                    }
+                }
+            }
+            return classNames;
+        } catch (IOException e) {
+            // 首次编译或清理后没有索引
+            return null;
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
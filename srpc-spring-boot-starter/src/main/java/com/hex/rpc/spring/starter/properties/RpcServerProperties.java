@@ -18,6 +18,10 @@ public class RpcServerProperties {
 
     private Integer businessThreads = 200; //业务处理线程池，0为不设置
     private Integer businessQueueSize = 500; //业务线程池队列大小
+    private boolean virtualThreadEnable = false; //是否每个请求使用一个虚拟线程处理，需JDK21及以上，不支持时使用业务线程池
+    private Integer virtualThreadMaxConcurrency = 10000; //虚拟线程模式下同时处理的最大请求数，超出的请求在虚拟线程中等待
+    private boolean virtualThreadPinnedTrace = false; //是否在虚拟线程被pinned时打印堆栈，用于诊断
+    private Long asyncRouteTimeout = 0L; //异步路由(返回CompletableFuture等)等待结果的最长时间(毫秒)，0为不限制，请求带有截止时间时以较早者为准
 
     private Integer connectionIdleTime = 180;//超过连接空闲时间(秒)未收发数据则关闭连接
     private Integer printConnectionNumInterval = 0; //打印服务端当前连接数, 时间间隔(秒), 0为不打印
@@ -25,11 +29,18 @@ public class RpcServerProperties {
 
     private CompressType compressType = CompressType.SNAPPY; //压缩算法类型，无需压缩为NONE
     private SerializeType serializeType = SerializeType.PROTOSTUFF; //序列化类型，默认protostuff
+    private Integer compressThreshold = 512; //消息体小于该字节数时不压缩，0为全部压缩
+    private boolean adaptiveCompressEnable = false; //是否开启自适应压缩，按mapping统计压缩率及耗时，收益不足时自动关闭该mapping的压缩
 
     private Integer sendBuf = 65535; //tcp发送缓冲区
     private Integer receiveBuf = 65535; //tcp接收缓冲区
     private Integer lowWaterLevel = 1024 * 1024; //低水位
     private Integer highWaterLevel = 10 * 1024 * 1024; //高水位
+    private Long maxPendingWriteBytes = 64 * 1024 * 1024L; //单个连接待写出的最大字节数，客户端读取过慢导致响应积压超过该值时关闭连接，0为不限制
+    private boolean flushConsolidationEnable = false; //是否合并flush，同一轮任务内的多次写出只flush一次
+    private Integer flushConsolidationCount = 64; //合并flush时累积的最大写出次数，超过后立即flush
+    private Integer flushConsolidationBytes = 64 * 1024; //合并flush时累积的最大字节数，超过后立即flush
+    private boolean frameBatchEnable = false; //是否将合并flush的多个v2帧打包为一个批量帧，需对端握手支持
 
     private boolean deDuplicateEnable = false; //是否开启去重处理
     private Integer duplicateCheckTime = 10; //请求去重缓存时长(秒)
@@ -302,4 +313,103 @@ public class RpcServerProperties {
         isPrintHearBeatPacketInfo = printHearBeatPacketInfo;
         return this;
     }
+
+    public boolean isAdaptiveCompressEnable() {
+        return adaptiveCompressEnable;
+    }
+
+    public RpcServerProperties setAdaptiveCompressEnable(boolean adaptiveCompressEnable) {
+        this.adaptiveCompressEnable = adaptiveCompressEnable;
+        return this;
+    }
+
+    public Integer getCompressThreshold() {
+        return compressThreshold;
+    }
+
+    public RpcServerProperties setCompressThreshold(Integer compressThreshold) {
+        this.compressThreshold = compressThreshold;
+        return this;
+    }
+
+    public boolean isFrameBatchEnable() {
+        return frameBatchEnable;
+    }
+
+    public RpcServerProperties setFrameBatchEnable(boolean frameBatchEnable) {
+        this.frameBatchEnable = frameBatchEnable;
+        return this;
+    }
+
+    public Integer getFlushConsolidationBytes() {
+        return flushConsolidationBytes;
+    }
+
+    public RpcServerProperties setFlushConsolidationBytes(Integer flushConsolidationBytes) {
+        this.flushConsolidationBytes = flushConsolidationBytes;
+        return this;
+    }
+
+    public Integer getFlushConsolidationCount() {
+        return flushConsolidationCount;
+    }
+
+    public RpcServerProperties setFlushConsolidationCount(Integer flushConsolidationCount) {
+        this.flushConsolidationCount = flushConsolidationCount;
+        return this;
+    }
+
+    public boolean isFlushConsolidationEnable() {
+        return flushConsolidationEnable;
+    }
+
+    public RpcServerProperties setFlushConsolidationEnable(boolean flushConsolidationEnable) {
+        this.flushConsolidationEnable = flushConsolidationEnable;
+        return this;
+    }
+
+    public boolean isVirtualThreadPinnedTrace() {
+        return virtualThreadPinnedTrace;
+    }
+
+    public RpcServerProperties setVirtualThreadPinnedTrace(boolean virtualThreadPinnedTrace) {
+        this.virtualThreadPinnedTrace = virtualThreadPinnedTrace;
+        return this;
+    }
+
+    public Integer getVirtualThreadMaxConcurrency() {
+        return virtualThreadMaxConcurrency;
+    }
+
+    public RpcServerProperties setVirtualThreadMaxConcurrency(Integer virtualThreadMaxConcurrency) {
+        this.virtualThreadMaxConcurrency = virtualThreadMaxConcurrency;
+        return this;
+    }
+
+    public boolean isVirtualThreadEnable() {
+        return virtualThreadEnable;
+    }
+
+    public RpcServerProperties setVirtualThreadEnable(boolean virtualThreadEnable) {
+        this.virtualThreadEnable = virtualThreadEnable;
+        return this;
+    }
+
+    public Long getAsyncRouteTimeout() {
+        return asyncRouteTimeout;
+    }
+
+    public RpcServerProperties setAsyncRouteTimeout(Long asyncRouteTimeout) {
+        this.asyncRouteTimeout = asyncRouteTimeout;
+        return this;
+    }
+
+    public Long getMaxPendingWriteBytes() {
+        return maxPendingWriteBytes;
+    }
+
+    public RpcServerProperties setMaxPendingWriteBytes(Long maxPendingWriteBytes) {
+        this.maxPendingWriteBytes = maxPendingWriteBytes;
+        return this;
+    }
 }
@@ -1,5 +1,6 @@
 package com.hex.rpc.sping.factory;
 
+import com.hex.rpc.sping.reflect.ClientStubGenerator;
 import com.hex.rpc.sping.reflect.SRpcInvocationHandler;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.FactoryBean;
@@ -25,6 +26,10 @@ public class SRpcClientFactoryBean implements FactoryBean, ApplicationContextAwa
     @Override
     public Object getObject() throws Exception {
         SRpcInvocationHandler invocationHandler = new SRpcInvocationHandler(applicationContext, type);
+        Object stub = ClientStubGenerator.newStub(type, invocationHandler);
+        if (stub != null) {
+            return stub;
+        }
         return Proxy.newProxyInstance(this.getClass().getClassLoader(), new Class[]{type}, invocationHandler);
     }
 
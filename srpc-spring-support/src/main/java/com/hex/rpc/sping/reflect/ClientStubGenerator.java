@@ -0,0 +1,191 @@
+package com.hex.rpc.sping.reflect;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author: hs
+ * <p>
+ * 客户端桩类生成器
+ * 为@SRpcClient接口生成实现类，每个方法将参数装入数组后以固定的方法下标直接调用{@link SRpcInvocationHandler#invoke(int, Object[])}，
+ * 免去JDK动态代理的反射分发及按Method查找的开销；接口非public或生成失败时返回null，由调用方退回动态代理
+ */
+public class ClientStubGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(ClientStubGenerator.class);
+
+    private static final String STUB_SUFFIX = "$$SRpcStub$";
+    private static final String HANDLER_FIELD = "handler";
+    private static final String HANDLER_INTERNAL_NAME = Type.getInternalName(SRpcInvocationHandler.class);
+    private static final String HANDLER_DESCRIPTOR = Type.getDescriptor(SRpcInvocationHandler.class);
+    private static final String INVOKE_DESCRIPTOR = "(I[Ljava/lang/Object;)Ljava/lang/Object;";
+
+    private static final AtomicInteger STUB_INDEX = new AtomicInteger();
+
+    private ClientStubGenerator() {
+    }
+
+    /**
+     * 生成桩类实例
+     *
+     * @param type    @SRpcClient接口
+     * @param handler 调用处理器，方法下标与{@link SRpcInvocationHandler#getStubMethods()}一致
+     * @return 桩类实例，无法生成时返回null
+     */
+    public static Object newStub(Class<?> type, SRpcInvocationHandler handler) {
+        if (!type.isInterface() || !Modifier.isPublic(type.getModifiers())) {
+            // 非public接口只能由同一类加载器中同包的类实现
+            return null;
+        }
+        String className = type.getName() + STUB_SUFFIX + STUB_INDEX.getAndIncrement();
+        try {
+            byte[] bytes = generate(type, className, handler.getStubMethods());
+            Class<?> stubClass = new StubClassLoader(type.getClassLoader()).define(className, bytes);
+            return stubClass.getConstructor(SRpcInvocationHandler.class).newInstance(handler);
+        } catch (Throwable e) {
+            logger.warn("Failed to generate client stub for {}, fall back to dynamic proxy", type.getName(), e);
+            return null;
+        }
+    }
+
+    private static byte[] generate(Class<?> type, String className, List<Method> methods) {
+        String internalName = className.replace('.', '/');
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, internalName, null,
+                "java/lang/Object", new String[]{Type.getInternalName(type)});
+        cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, HANDLER_FIELD, HANDLER_DESCRIPTOR, null, null)
+                .visitEnd();
+
+        MethodVisitor init = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "(" + HANDLER_DESCRIPTOR + ")V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitVarInsn(Opcodes.ALOAD, 1);
+        init.visitFieldInsn(Opcodes.PUTFIELD, internalName, HANDLER_FIELD, HANDLER_DESCRIPTOR);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        for (int i = 0; i < methods.size(); i++) {
+            generateMethod(cw, internalName, methods.get(i), i);
+        }
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * return (R) handler.invoke(index, new Object[]{arg0, arg1, ...});
+     */
+    private static void generateMethod(ClassWriter cw, String internalName, Method method, int index) {
+        Class<?>[] exceptionTypes = method.getExceptionTypes();
+        String[] exceptions = new String[exceptionTypes.length];
+        for (int i = 0; i < exceptionTypes.length; i++) {
+            exceptions[i] = Type.getInternalName(exceptionTypes[i]);
+        }
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, method.getName(), Type.getMethodDescriptor(method),
+                null, exceptions);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, internalName, HANDLER_FIELD, HANDLER_DESCRIPTOR);
+        mv.visitLdcInsn(index);
+
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        mv.visitLdcInsn(parameterTypes.length);
+        mv.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+        int slot = 1;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            Type parameterType = Type.getType(parameterTypes[i]);
+            mv.visitInsn(Opcodes.DUP);
+            mv.visitLdcInsn(i);
+            mv.visitVarInsn(parameterType.getOpcode(Opcodes.ILOAD), slot);
+            box(mv, parameterType);
+            mv.visitInsn(Opcodes.AASTORE);
+            slot += parameterType.getSize();
+        }
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, HANDLER_INTERNAL_NAME, "invoke", INVOKE_DESCRIPTOR, false);
+
+        Type returnType = Type.getType(method.getReturnType());
+        if (returnType.getSort() == Type.VOID) {
+            mv.visitInsn(Opcodes.POP);
+            mv.visitInsn(Opcodes.RETURN);
+        } else {
+            unbox(mv, returnType);
+            mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
+        }
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void box(MethodVisitor mv, Type type) {
+        String wrapper = wrapperName(type);
+        if (wrapper != null) {
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, wrapper, "valueOf",
+                    "(" + type.getDescriptor() + ")L" + wrapper + ";", false);
+        }
+    }
+
+    private static void unbox(MethodVisitor mv, Type type) {
+        String wrapper = wrapperName(type);
+        if (wrapper == null) {
+            mv.visitTypeInsn(Opcodes.CHECKCAST, type.getSort() == Type.ARRAY ? type.getDescriptor() : type.getInternalName());
+            return;
+        }
+        mv.visitTypeInsn(Opcodes.CHECKCAST, wrapper);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, wrapper, type.getClassName() + "Value",
+                "()" + type.getDescriptor(), false);
+    }
+
+    /**
+     * 基本类型对应的包装类，非基本类型返回null
+     */
+    private static String wrapperName(Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN:
+                return "java/lang/Boolean";
+            case Type.CHAR:
+                return "java/lang/Character";
+            case Type.BYTE:
+                return "java/lang/Byte";
+            case Type.SHORT:
+                return "java/lang/Short";
+            case Type.INT:
+                return "java/lang/Integer";
+            case Type.FLOAT:
+                return "java/lang/Float";
+            case Type.LONG:
+                return "java/lang/Long";
+            case Type.DOUBLE:
+                return "java/lang/Double";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 以接口的类加载器为父加载器，父加载器找不到的类(如本框架的类)从本类的加载器查找
+     */
+    private static class StubClassLoader extends ClassLoader {
+
+        StubClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String className, byte[] bytes) {
+            return defineClass(className, bytes, 0, bytes.length);
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            return ClientStubGenerator.class.getClassLoader().loadClass(name);
+        }
+    }
+}
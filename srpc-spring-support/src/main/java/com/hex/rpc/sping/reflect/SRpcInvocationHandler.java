@@ -5,6 +5,7 @@ import com.hex.common.annotation.SRpcClient;
 import com.hex.common.net.HostAndPort;
 import com.hex.common.utils.MappingUtil;
 import com.hex.rpc.sping.registry.RpcServerAddressRegistry;
+import com.hex.srpc.core.invoke.CallOptions;
 import com.hex.srpc.core.rpc.Client;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -14,12 +15,25 @@ import org.springframework.context.ApplicationContext;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * @author: hs
+ * <p>
+ * 客户端接口调用处理器
+ * 优先由{@link ClientStubGenerator}生成的桩类按方法下标直接调用，无法生成桩类时作为JDK动态代理的InvocationHandler；
+ * 每个方法的mapping、返回类型及调用参数，以及目标服务名或节点列表均在创建时确定，调用时不再查找
  */
 public class SRpcInvocationHandler implements InvocationHandler {
     private static final Logger logger = LoggerFactory.getLogger(SRpcInvocationHandler.class);
@@ -28,30 +42,102 @@ public class SRpcInvocationHandler implements InvocationHandler {
     private Class<?> type;
     private String typeName;
     private int timeoutRetryTimes;
+    private String serviceName;
+    private HostAndPort[] nodes;
     private Map<Method, RouterWrapper> methodCache = new HashMap<>(4);
+    private final List<Method> stubMethods = new ArrayList<>();
+    private RouterWrapper[] stubRouters;
 
     public SRpcInvocationHandler(ApplicationContext applicationContext, Class<?> type) {
         this.type = type;
         this.client = applicationContext.getBean(Client.class);
         resolveType();
+        resolveTarget();
+        resolveStubMethods();
     }
 
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) {
         RouterWrapper routerWrapper = methodCache.get(method);
         if (routerWrapper != null) {
-            String mapping = routerWrapper.getRouterMapping();
-            Class<?> returnType = routerWrapper.getReturnType();
-            String serviceName = RpcServerAddressRegistry.getServiceName(typeName);
-            if (StringUtils.isNotBlank(serviceName)) {
-                return client.invokeWithRegistry(mapping, returnType, serviceName, timeoutRetryTimes, args);
-            }
-            List<HostAndPort> hostAndPorts = RpcServerAddressRegistry.getHostAndPorts(typeName);
-            return client.invoke(mapping, returnType, timeoutRetryTimes, args, hostAndPorts.toArray(new HostAndPort[]{}));
+            return doInvoke(routerWrapper, args);
         }
         return ignoreMethodProcess(method, args);
     }
 
+    /**
+     * 桩类调用入口
+     *
+     * @param index 方法在{@link #getStubMethods()}中的下标
+     * @param args  调用参数
+     */
+    public Object invoke(int index, Object[] args) {
+        RouterWrapper routerWrapper = stubRouters[index];
+        if (routerWrapper != null) {
+            return doInvoke(routerWrapper, args);
+        }
+        return ignoreMethodProcess(stubMethods.get(index), args);
+    }
+
+    /**
+     * 桩类需要实现的方法，下标即桩类调用时的方法下标
+     */
+    public List<Method> getStubMethods() {
+        return stubMethods;
+    }
+
+    private Object doInvoke(RouterWrapper routerWrapper, Object[] args) {
+        String mapping = routerWrapper.getRouterMapping();
+        Class<?> returnType = routerWrapper.getReturnType();
+        if (routerWrapper.isAsync()) {
+            // 返回CompletableFuture的方法异步调用，不阻塞调用线程
+            if (serviceName != null) {
+                return client.invokeFutureWithRegistry(mapping, returnType, serviceName, routerWrapper.getCallOptions(), args);
+            }
+            return client.invokeFuture(mapping, returnType, routerWrapper.getCallOptions(), args, nodes);
+        }
+        if (serviceName != null) {
+            return client.invokeWithRegistry(mapping, returnType, serviceName, routerWrapper.getCallOptions(), args);
+        }
+        return client.invoke(mapping, returnType, routerWrapper.getCallOptions(), args, nodes);
+    }
+
+    /**
+     * 确定调用目标，配置了服务名时通过注册中心发现，否则使用配置的节点列表
+     */
+    private void resolveTarget() {
+        String name = RpcServerAddressRegistry.getServiceName(typeName);
+        if (StringUtils.isNotBlank(name)) {
+            this.serviceName = name;
+            return;
+        }
+        List<HostAndPort> hostAndPorts = RpcServerAddressRegistry.getHostAndPorts(typeName);
+        this.nodes = hostAndPorts == null ? new HostAndPort[0] : hostAndPorts.toArray(new HostAndPort[0]);
+    }
+
+    /**
+     * 桩类实现接口的全部抽象方法及声明了mapping的方法，同签名的方法只实现一次
+     */
+    private void resolveStubMethods() {
+        Set<String> signatures = new HashSet<>();
+        List<RouterWrapper> routers = new ArrayList<>();
+        for (Method method : type.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            RouterWrapper wrapper = methodCache.get(method);
+            if (wrapper == null && method.isDefault()) {
+                continue;
+            }
+            String signature = method.getName() + Arrays.toString(method.getParameterTypes());
+            if (signatures.add(signature)) {
+                stubMethods.add(method);
+                routers.add(wrapper);
+            }
+        }
+        this.stubRouters = routers.toArray(new RouterWrapper[0]);
+    }
+
     private void resolveType() {
         this.typeName = type.getCanonicalName();
         SRpcClient annotation = type.getAnnotation(SRpcClient.class);
@@ -62,9 +148,19 @@ public class SRpcInvocationHandler implements InvocationHandler {
             retryTimes = 0;
         }
         timeoutRetryTimes = retryTimes;
+        long typeTimeout = annotation.timeout();
+        long typeRetryBackoff = annotation.retryBackoff();
         Method[] declaredMethods = type.getDeclaredMethods();
         for (Method method : declaredMethods) {
             RouterWrapper wrapper = new RouterWrapper();
+            // 方法上指定的超时时间优先于接口上的
+            long timeout = typeTimeout;
+            int methodRetryTimes = timeoutRetryTimes;
+            long retryBackoff = typeRetryBackoff;
+            long hedgeDelay = 0;
+            long cacheTtl = 0;
+            long cacheRefresh = 0;
+            boolean coalesce = false;
             if (method.isAnnotationPresent(Mapping.class)) {
                 Mapping routeMapping = method.getAnnotation(Mapping.class);
                 String mapping = routeMapping.value();
@@ -73,12 +169,32 @@ public class SRpcInvocationHandler implements InvocationHandler {
                     continue;
                 }
                 wrapper.setRouterMapping(mapping);
+                if (routeMapping.timeout() > 0) {
+                    timeout = routeMapping.timeout();
+                }
+                if (routeMapping.retryTimes() >= 0) {
+                    methodRetryTimes = routeMapping.retryTimes();
+                }
+                if (routeMapping.retryBackoff() > 0) {
+                    retryBackoff = routeMapping.retryBackoff();
+                }
+                hedgeDelay = routeMapping.hedgeDelay();
+                cacheTtl = routeMapping.cacheTtl();
+                cacheRefresh = routeMapping.cacheRefresh();
+                coalesce = routeMapping.coalesce();
             } else {
                 //没有手动指定mapping的话将根据type和method生成唯一标识
                 String mapping = MappingUtil.generateMapping(type, method);
                 wrapper.setRouterMapping(mapping);
             }
-            wrapper.setReturnType(method.getReturnType());
+            if (method.getReturnType() == CompletableFuture.class || method.getReturnType() == CompletionStage.class) {
+                wrapper.setAsync(true).setReturnType(futureValueType(method));
+            } else {
+                wrapper.setReturnType(method.getReturnType());
+            }
+            wrapper.setCallOptions(new CallOptions().setRetryTimes(methodRetryTimes).setTimeoutMillis(timeout)
+                    .setRetryBackoffMillis(retryBackoff).setHedgeDelayMillis(hedgeDelay)
+                    .setCacheTtlMillis(cacheTtl).setCacheRefreshMillis(cacheRefresh).setCoalesce(coalesce));
             methodCache.put(method, wrapper);
         }
 
@@ -88,6 +204,23 @@ public class SRpcInvocationHandler implements InvocationHandler {
 
     }
 
+    /**
+     * CompletableFuture<T>中T的类型，无法确定时为Object
+     */
+    private static Class<?> futureValueType(Method method) {
+        Type genericType = method.getGenericReturnType();
+        if (genericType instanceof ParameterizedType) {
+            Type valueType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+            if (valueType instanceof ParameterizedType) {
+                valueType = ((ParameterizedType) valueType).getRawType();
+            }
+            if (valueType instanceof Class) {
+                return (Class<?>) valueType;
+            }
+        }
+        return Object.class;
+    }
+
     private Object ignoreMethodProcess(Method method, Object[] args) {
         switch (method.getName()) {
             case "equals":
@@ -111,6 +244,14 @@ public class SRpcInvocationHandler implements InvocationHandler {
          * 返回类型
          */
         private Class<?> returnType;
+        /**
+         * 调用参数
+         */
+        private CallOptions callOptions;
+        /**
+         * 是否返回CompletableFuture
+         */
+        private boolean async;
 
         String getRouterMapping() {
             return routerMapping;
@@ -129,6 +270,24 @@ public class SRpcInvocationHandler implements InvocationHandler {
             this.returnType = returnType;
             return this;
         }
+
+        CallOptions getCallOptions() {
+            return callOptions;
+        }
+
+        RouterWrapper setCallOptions(CallOptions callOptions) {
+            this.callOptions = callOptions;
+            return this;
+        }
+
+        boolean isAsync() {
+            return async;
+        }
+
+        RouterWrapper setAsync(boolean async) {
+            this.async = async;
+            return this;
+        }
     }
 
 
@@ -2,6 +2,7 @@ package com.hex.rpc.sping.registry;
 
 import com.hex.common.annotation.SRpcRoute;
 import com.hex.common.annotation.SRpcClient;
+import com.hex.common.index.SRpcIndex;
 import com.hex.rpc.sping.annotation.EnableSRpc;
 import com.hex.rpc.sping.factory.SRpcClientFactoryBean;
 import com.hex.rpc.sping.processor.RpcPostProcessor;
@@ -24,11 +25,14 @@ import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
 import org.springframework.core.env.Environment;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
 import org.springframework.core.type.filter.AnnotationTypeFilter;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 
 import java.beans.Introspector;
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -43,6 +47,8 @@ public class RpcComponentRegistrar implements ImportBeanDefinitionRegistrar, Res
 
     private Environment environment;
 
+    private MetadataReaderFactory metadataReaderFactory;
+
     private static final String BASE_PACKAGES = "basePackages";
 
     @Override
@@ -88,53 +94,107 @@ public class RpcComponentRegistrar implements ImportBeanDefinitionRegistrar, Res
     }
 
     private void scanClientAndRegister(Set<String> basePackages, BeanDefinitionRegistry registry) {
+        // 有索引的类路径根按编译期索引注册，无需扫描
+        SRpcIndex index = SRpcIndex.load(SRpcIndex.CLIENT_INDEX_LOCATION, getClassLoader());
+        Set<String> indexed = index.getClassNames(basePackages);
+        for (String className : indexed) {
+            AnnotationMetadata annotationMetadata = readMetadata(className);
+            if (annotationMetadata != null) {
+                registerClientCandidate(registry, annotationMetadata);
+            }
+        }
         RpcClientScanner scanner = new RpcClientScanner(false, environment);
         scanner.setResourceLoader(resourceLoader);
         AnnotationTypeFilter annotationTypeFilter = new AnnotationTypeFilter(SRpcClient.class);
         scanner.addIncludeFilter(annotationTypeFilter);
 
         for (String basePackage : basePackages) {
+            if (index.coversPackage(basePackage, getClassLoader())) {
+                // 包的所有位置都有索引
+                continue;
+            }
             Set<BeanDefinition> candidateComponents = scanner.findCandidateComponents(basePackage);
             for (BeanDefinition candidateComponent : candidateComponents) {
-                if (candidateComponent instanceof AnnotatedBeanDefinition) {
+                if (candidateComponent instanceof AnnotatedBeanDefinition
+                        && !indexed.contains(candidateComponent.getBeanClassName())) {
                     AnnotatedBeanDefinition beanDefinition = (AnnotatedBeanDefinition) candidateComponent;
-                    AnnotationMetadata annotationMetadata = beanDefinition.getMetadata();
-                    Assert.isTrue(annotationMetadata.isInterface(),
-                            "@RpcClient can only be specified on an interface");
-                    //注册server address
-                    RpcServerAddressRegistry.register(annotationMetadata, environment);
-                    //注册Client bean
-                    registerClient(registry, annotationMetadata);
+                    registerClientCandidate(registry, beanDefinition.getMetadata());
                 }
             }
         }
     }
 
+    private void registerClientCandidate(BeanDefinitionRegistry registry, AnnotationMetadata annotationMetadata) {
+        Assert.isTrue(annotationMetadata.isInterface(),
+                "@RpcClient can only be specified on an interface");
+        //注册server address
+        RpcServerAddressRegistry.register(annotationMetadata, environment);
+        //注册Client bean
+        registerClient(registry, annotationMetadata);
+    }
+
     private void scanRouteAndRegister(Set<String> basePackages, BeanDefinitionRegistry registry) {
+        // 有索引的类路径根按编译期索引注册，无需扫描
+        SRpcIndex index = SRpcIndex.load(SRpcIndex.ROUTE_INDEX_LOCATION, getClassLoader());
+        Set<String> indexed = index.getClassNames(basePackages);
+        for (String className : indexed) {
+            AnnotationMetadata annotationMetadata = readMetadata(className);
+            if (annotationMetadata != null) {
+                registerRouteCandidate(registry, annotationMetadata);
+            }
+        }
         RpcRouteScanner scanner = new RpcRouteScanner(false, environment);
         scanner.setResourceLoader(resourceLoader);
         AnnotationTypeFilter annotationTypeFilter = new AnnotationTypeFilter(SRpcRoute.class);
         scanner.addIncludeFilter(annotationTypeFilter);
 
         for (String basePackage : basePackages) {
+            if (index.coversPackage(basePackage, getClassLoader())) {
+                // 包的所有位置都有索引
+                continue;
+            }
             Set<BeanDefinition> candidateComponents = scanner.findCandidateComponents(basePackage);
             for (BeanDefinition candidateComponent : candidateComponents) {
-                if (candidateComponent instanceof AnnotatedBeanDefinition) {
+                if (candidateComponent instanceof AnnotatedBeanDefinition
+                        && !indexed.contains(candidateComponent.getBeanClassName())) {
                     AnnotatedBeanDefinition beanDefinition = (AnnotatedBeanDefinition) candidateComponent;
-                    AnnotationMetadata annotationMetadata = beanDefinition.getMetadata();
-                    Assert.isTrue(annotationMetadata.getInterfaceNames().length > 0,
-                            "the class annotated @SRpcRoute must implement an interface");
-                    Assert.isTrue(annotationMetadata.isConcrete(),
-                            "@SRpcRoute can not be specified on an interface or abstract");
-                    //注册Route Class
-                    RouterFactory.addRouterClazz(annotationMetadata.getClassName());
-                    //注册Route bean
-                    registerRoute(registry, annotationMetadata);
+                    registerRouteCandidate(registry, beanDefinition.getMetadata());
                 }
             }
         }
     }
 
+    private void registerRouteCandidate(BeanDefinitionRegistry registry, AnnotationMetadata annotationMetadata) {
+        Assert.isTrue(annotationMetadata.getInterfaceNames().length > 0,
+                "the class annotated @SRpcRoute must implement an interface");
+        Assert.isTrue(annotationMetadata.isConcrete(),
+                "@SRpcRoute can not be specified on an interface or abstract");
+        //注册Route Class
+        RouterFactory.addRouterClazz(annotationMetadata.getClassName());
+        //注册Route bean
+        registerRoute(registry, annotationMetadata);
+    }
+
+    /**
+     * 读取类文件中的注解信息，不加载类
+     */
+    private AnnotationMetadata readMetadata(String className) {
+        if (metadataReaderFactory == null) {
+            metadataReaderFactory = new CachingMetadataReaderFactory(resourceLoader);
+        }
+        try {
+            return metadataReaderFactory.getMetadataReader(className).getAnnotationMetadata();
+        } catch (IOException e) {
+            logger.error("Failed to read the indexed class {}", className, e);
+            return null;
+        }
+    }
+
+    private ClassLoader getClassLoader() {
+        ClassLoader classLoader = resourceLoader == null ? null : resourceLoader.getClassLoader();
+        return classLoader == null ? ClassUtils.getDefaultClassLoader() : classLoader;
+    }
+
     private void registerRoute(BeanDefinitionRegistry registry, AnnotationMetadata annotationMetadata) {
         String className = annotationMetadata.getClassName();
         BeanDefinitionBuilder builder = BeanDefinitionBuilder.genericBeanDefinition(className);